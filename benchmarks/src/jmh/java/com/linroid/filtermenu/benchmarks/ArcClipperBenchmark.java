@@ -0,0 +1,70 @@
+package com.linroid.filtermenu.benchmarks;
+
+import com.linroid.filtermenu.library.ArcClipper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the arc clipping {@code FilterMenuLayout} runs on every layout pass that moves the circle,
+ * on a 1080x2340 screen with a status bar inset, rounded corners and a notch at the top.
+ * <p>
+ * Run with {@code ./gradlew :benchmarks:jmh}, check correctness with {@code ./gradlew :benchmarks:fuzzArcClipper}.
+ */
+@State(Scope.Thread)
+public class ArcClipperBenchmark {
+    private static final float DENSITY = 3f;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2340;
+    private static final int STATUS_BAR = (int) (24 * DENSITY);
+    private static final int CORNER_RADIUS = (int) (32 * DENSITY);
+    private static final int EXPANDED_RADIUS = (int) (96 * DENSITY);
+    private static final int OFFSET = (int) (50 * DENSITY);
+
+    /**
+     * top left corner, next to the notch, and the middle of the screen
+     */
+    @Param({"CORNER", "NOTCH", "CENTER"})
+    public String position;
+
+    /**
+     * obstacles besides the bounds, 0 for a plain rectangle, 1 adds the rounded corners, 2 the notch too
+     */
+    @Param({"0", "1", "2"})
+    public int obstacles;
+
+    private final ArcClipper clipper = new ArcClipper();
+
+    @Setup
+    public void setup() {
+        int x, y;
+        if ("CORNER".equals(position)) {
+            x = OFFSET;
+            y = STATUS_BAR + OFFSET;
+        } else if ("NOTCH".equals(position)) {
+            x = WIDTH / 2 - EXPANDED_RADIUS / 2;
+            y = STATUS_BAR + OFFSET;
+        } else {
+            x = WIDTH / 2;
+            y = HEIGHT / 2;
+        }
+        clipper.setCircle(x, y, EXPANDED_RADIUS);
+        clipper.setBounds(0, STATUS_BAR, WIDTH, HEIGHT);
+        if (obstacles >= 1) {
+            clipper.setCornerRadii(CORNER_RADIUS, CORNER_RADIUS, CORNER_RADIUS, CORNER_RADIUS);
+        }
+        if (obstacles >= 2) {
+            // a notch hanging below the status bar
+            clipper.addExclusion(WIDTH / 2 - 60 * DENSITY, 0, WIDTH / 2 + 60 * DENSITY, STATUS_BAR + 10 * DENSITY);
+        }
+    }
+
+    @Benchmark
+    public double solve() {
+        clipper.solve();
+        return clipper.getToAngle() - clipper.getFromAngle();
+    }
+}
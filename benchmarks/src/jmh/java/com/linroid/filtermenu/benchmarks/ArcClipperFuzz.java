@@ -0,0 +1,230 @@
+package com.linroid.filtermenu.benchmarks;
+
+import com.linroid.filtermenu.library.ArcClipper;
+
+import java.util.Random;
+
+/**
+ * Checks {@link ArcClipper} against a brute force sampler on random circles, bounds, rounded corners and
+ * exclusions: the sampler walks the circle in small steps, tests every point against the clip region, and
+ * measures the longest run of visible points.
+ * <p>
+ * Run with {@code ./gradlew :benchmarks:fuzzArcClipper}, optionally passing the iteration count and seed
+ * as arguments. Exits with status 1 on the first mismatch.
+ */
+public final class ArcClipperFuzz {
+    private static final int SAMPLES = 20000;
+    /**
+     * the sampler can't resolve arcs finer than a couple of its steps *
+     */
+    private static final double TOLERANCE = 360.0 * 3 / SAMPLES;
+    /**
+     * how far past the ends of the arc a point is checked to be hidden, in degrees *
+     */
+    private static final double EPSILON = 1e-7;
+
+    private final Random random;
+    private final ArcClipper clipper = new ArcClipper();
+
+    private double centerX, centerY, radius;
+    private double left, top, right, bottom;
+    private final double[] corners = new double[4];
+    private final double[] exclusions = new double[4 * 4];
+    private int exclusionCount;
+    /**
+     * start and sweep of the run {@link #largestVisibleSweep()} found, in degrees *
+     */
+    private double runStart;
+    private double runSweep;
+
+    private ArcClipperFuzz(long seed) {
+        random = new Random(seed);
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        ArcClipperFuzz fuzz = new ArcClipperFuzz(seed);
+        for (int i = 0; i < iterations; i++) {
+            String failure = fuzz.runOnce();
+            if (failure != null) {
+                System.err.println("iteration " + i + " of seed " + seed + ": " + failure);
+                System.exit(1);
+            }
+        }
+        System.out.println(iterations + " cases passed, seed " + seed);
+    }
+
+    /**
+     * @return a description of the mismatch, or null if the solver agrees with the sampler
+     */
+    private String runOnce() {
+        randomize();
+        clipper.setCircle(centerX, centerY, radius);
+        clipper.setBounds(left, top, right, bottom);
+        clipper.setCornerRadii(corners[0], corners[1], corners[2], corners[3]);
+        clipper.clearExclusions();
+        for (int i = 0; i < exclusionCount * 4; i += 4) {
+            clipper.addExclusion(exclusions[i], exclusions[i + 1], exclusions[i + 2], exclusions[i + 3]);
+        }
+        boolean visible = clipper.solve();
+        double from = clipper.getFromAngle();
+        double to = clipper.getToAngle();
+
+        double expected = largestVisibleSweep();
+        if (!visible) {
+            return expected > TOLERANCE ? describe("reported hidden, sampler found " + expected) : null;
+        }
+        if (expected < 360 - TOLERANCE && Math.abs((to - from) - expected) > TOLERANCE
+                && !missedByRun(from - EPSILON) && !missedByRun(to + EPSILON)) {
+            return describe("sweep " + (to - from) + " from " + from + ", sampler found " + expected
+                    + " from " + runStart);
+        }
+        // the arc must end where the circle gets hidden
+        if (to - from < 360 && (isVisible(Math.toRadians(from - EPSILON)) || isVisible(Math.toRadians(to + EPSILON)))) {
+            return describe("arc " + from + ".." + to + " could extend further");
+        }
+        if (expected >= 360 - TOLERANCE && to - from < 360 - TOLERANCE) {
+            return describe("sweep " + (to - from) + " of a fully visible circle");
+        }
+        // every point well inside the reported arc must be visible
+        if (to - from < 360) {
+            for (double angle = from + TOLERANCE; angle < to - TOLERANCE; angle += TOLERANCE) {
+                if (!isVisible(Math.toRadians(angle))) {
+                    return describe("hidden point at " + angle + " in arc " + from + ".." + to);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void randomize() {
+        double width = 200 + random.nextDouble() * 1800;
+        double height = 200 + random.nextDouble() * 1800;
+        left = 0;
+        top = 0;
+        right = width;
+        bottom = height;
+        // insets shrink the rectangle
+        if (random.nextBoolean()) {
+            left += random.nextDouble() * 100;
+            top += random.nextDouble() * 150;
+            right -= random.nextDouble() * 100;
+            bottom -= random.nextDouble() * 150;
+        }
+        radius = 20 + random.nextDouble() * 400;
+        // mostly near an edge or corner, where clipping happens
+        centerX = random.nextInt(3) == 0 ? random.nextDouble() * width : pickNear(left, right);
+        centerY = random.nextInt(3) == 0 ? random.nextDouble() * height : pickNear(top, bottom);
+        double maxCorner = Math.min(right - left, bottom - top) / 2;
+        for (int i = 0; i < 4; i++) {
+            corners[i] = random.nextBoolean() ? random.nextDouble() * Math.min(maxCorner, 150) : 0;
+        }
+        exclusionCount = random.nextInt(5);
+        for (int i = 0; i < exclusionCount * 4; i += 4) {
+            double w = 10 + random.nextDouble() * 300;
+            double h = 10 + random.nextDouble() * 200;
+            double x = centerX - radius + random.nextDouble() * 2 * radius - w / 2;
+            double y = centerY - radius + random.nextDouble() * 2 * radius - h / 2;
+            exclusions[i] = x;
+            exclusions[i + 1] = y;
+            exclusions[i + 2] = x + w;
+            exclusions[i + 3] = y + h;
+        }
+    }
+
+    private double pickNear(double min, double max) {
+        double offset = (random.nextDouble() - .3) * radius * 1.5;
+        return random.nextBoolean() ? min + offset : max - offset;
+    }
+
+    /**
+     * a circle grazing an obstacle is hidden along an arc finer than the samples, which the sampler
+     * takes as visible. That's the case if a hidden point lies in the sampled run
+     */
+    private boolean missedByRun(double angle) {
+        double offset = ((angle - runStart) % 360 + 360) % 360;
+        return offset <= runSweep && !isVisible(Math.toRadians(angle));
+    }
+
+    /**
+     * longest run of visible samples in degrees, 360 if all are visible
+     */
+    private double largestVisibleSweep() {
+        int first = -1;
+        for (int i = 0; i < SAMPLES; i++) {
+            if (!isVisible(sampleAngle(i))) {
+                first = i;
+                break;
+            }
+        }
+        if (first < 0) {
+            runStart = 0;
+            runSweep = 360;
+            return 360;
+        }
+        // walk once around, starting at a hidden sample so no run wraps
+        int best = 0, bestStart = first, run = 0;
+        for (int i = 1; i <= SAMPLES; i++) {
+            if (isVisible(sampleAngle(first + i))) {
+                run++;
+                if (run > best) {
+                    best = run;
+                    bestStart = first + i - run;
+                }
+            } else {
+                run = 0;
+            }
+        }
+        // the visible arc reaches from the hidden sample before the run to the one after it
+        runStart = 360.0 * bestStart / SAMPLES;
+        runSweep = 360.0 * (best + 1) / SAMPLES;
+        return runSweep;
+    }
+
+    private static double sampleAngle(int i) {
+        return Math.PI * 2 * i / SAMPLES;
+    }
+
+    private boolean isVisible(double radian) {
+        double x = centerX + radius * Math.cos(radian);
+        double y = centerY + radius * Math.sin(radian);
+        if (x < left || x > right || y < top || y > bottom) {
+            return false;
+        }
+        if (outsideCorner(x, y, left + corners[0], top + corners[0], corners[0], x < left + corners[0] && y < top + corners[0])
+                || outsideCorner(x, y, right - corners[1], top + corners[1], corners[1], x > right - corners[1] && y < top + corners[1])
+                || outsideCorner(x, y, right - corners[2], bottom - corners[2], corners[2], x > right - corners[2] && y > bottom - corners[2])
+                || outsideCorner(x, y, left + corners[3], bottom - corners[3], corners[3], x < left + corners[3] && y > bottom - corners[3])) {
+            return false;
+        }
+        for (int i = 0; i < exclusionCount * 4; i += 4) {
+            if (x > exclusions[i] && x < exclusions[i + 2] && y > exclusions[i + 1] && y < exclusions[i + 3]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean outsideCorner(double x, double y, double cx, double cy, double cornerRadius, boolean inSquare) {
+        if (cornerRadius <= 0 || !inSquare) {
+            return false;
+        }
+        double dx = x - cx;
+        double dy = y - cy;
+        return dx * dx + dy * dy > cornerRadius * cornerRadius;
+    }
+
+    private String describe(String problem) {
+        StringBuilder sb = new StringBuilder(problem)
+                .append("\n  circle ").append(centerX).append(", ").append(centerY).append(" r ").append(radius)
+                .append("\n  bounds ").append(left).append(", ").append(top).append(", ").append(right).append(", ").append(bottom)
+                .append("\n  corners ").append(corners[0]).append(", ").append(corners[1])
+                .append(", ").append(corners[2]).append(", ").append(corners[3]);
+        for (int i = 0; i < exclusionCount * 4; i += 4) {
+            sb.append("\n  exclusion ").append(exclusions[i]).append(", ").append(exclusions[i + 1])
+                    .append(", ").append(exclusions[i + 2]).append(", ").append(exclusions[i + 3]);
+        }
+        return sb.toString();
+    }
+}
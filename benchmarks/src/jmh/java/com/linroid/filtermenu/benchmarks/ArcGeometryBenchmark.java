@@ -0,0 +1,132 @@
+package com.linroid.filtermenu.benchmarks;
+
+import com.linroid.filtermenu.library.ArcGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the arc math run by {@code FilterMenuLayout} on every size change and layout pass.
+ * <p>
+ * Run with {@code ./gradlew :benchmarks:jmh}, the gc profiler reports bytes allocated per op
+ * as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+public class ArcGeometryBenchmark {
+    /**
+     * a 1080x1920 xxhdpi screen, radii match the sample (96dp/24dp) *
+     */
+    private static final float DENSITY = 3f;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int EXPANDED_RADIUS = (int) (96 * DENSITY);
+    private static final int COLLAPSED_RADIUS = (int) (24 * DENSITY);
+    private static final int OFFSET = (int) (50 * DENSITY);
+
+    /**
+     * every corner, edge and centered configuration the fm_center* attributes allow
+     */
+    public enum CenterPosition {
+        LEFT_TOP(OFFSET, 0, OFFSET, 0, false, false),
+        RIGHT_TOP(0, OFFSET, OFFSET, 0, false, false),
+        LEFT_BOTTOM(OFFSET, 0, 0, OFFSET, false, false),
+        RIGHT_BOTTOM(0, OFFSET, 0, OFFSET, false, false),
+        LEFT(OFFSET, 0, 0, 0, false, true),
+        RIGHT(0, OFFSET, 0, 0, false, true),
+        TOP(0, 0, OFFSET, 0, true, false),
+        BOTTOM(0, 0, 0, OFFSET, true, false),
+        CENTER(0, 0, 0, 0, true, true);
+
+        final int centerLeft, centerRight, centerTop, centerBottom;
+        final boolean centerHorizontal, centerVertical;
+
+        CenterPosition(int centerLeft, int centerRight, int centerTop, int centerBottom,
+                       boolean centerHorizontal, boolean centerVertical) {
+            this.centerLeft = centerLeft;
+            this.centerRight = centerRight;
+            this.centerTop = centerTop;
+            this.centerBottom = centerBottom;
+            this.centerHorizontal = centerHorizontal;
+            this.centerVertical = centerVertical;
+        }
+
+        /**
+         * same rules as FilterMenuLayout.onSizeChanged
+         */
+        int x(int w) {
+            return centerHorizontal ? w / 2 + centerLeft - centerRight
+                    : centerLeft != 0 ? centerLeft : w - centerRight;
+        }
+
+        int y(int h) {
+            return centerVertical ? h / 2 + centerTop - centerBottom
+                    : centerTop != 0 ? centerTop : h - centerBottom;
+        }
+    }
+
+    @Param({"LEFT_TOP", "RIGHT_TOP", "LEFT_BOTTOM", "RIGHT_BOTTOM", "LEFT", "RIGHT", "TOP", "BOTTOM", "CENTER"})
+    public CenterPosition position;
+
+    /**
+     * only the item placement benchmarks depend on the item count
+     */
+    @State(Scope.Thread)
+    public static class Items {
+        @Param({"3", "5", "8", "16", "32", "64"})
+        public int count;
+    }
+
+    private final ArcGeometry geometry = new ArcGeometry();
+    private final float[] coords = new float[2];
+    private float itemRadius;
+    private int centerX, centerY;
+
+    @Setup
+    public void setup() {
+        centerX = position.x(WIDTH);
+        centerY = position.y(HEIGHT);
+        geometry.setCenter(centerX, centerY);
+        geometry.setRadius(EXPANDED_RADIUS);
+        geometry.setBounds(
+                Math.max(0, centerX - EXPANDED_RADIUS),
+                Math.max(0, centerY - EXPANDED_RADIUS),
+                Math.min(WIDTH, centerX + EXPANDED_RADIUS),
+                Math.min(HEIGHT, centerY + EXPANDED_RADIUS));
+        geometry.clipArc();
+        itemRadius = (EXPANDED_RADIUS + COLLAPSED_RADIUS) / 2;
+    }
+
+    @Benchmark
+    public double clipArc() {
+        geometry.clipArc();
+        return geometry.getToAngle() - geometry.getFromAngle();
+    }
+
+    @Benchmark
+    public void calculateMenuItemPosition(Items items, Blackhole bh) {
+        for (int i = 0; i < items.count; i++) {
+            geometry.calculateItemPosition(i, items.count, itemRadius, coords);
+            bh.consume(coords[0]);
+            bh.consume(coords[1]);
+        }
+    }
+
+    /**
+     * what a relayout after a size change costs: arc selection plus placing every item
+     */
+    @Benchmark
+    public void layoutPass(Items items, Blackhole bh) {
+        geometry.clipArc();
+        calculateMenuItemPosition(items, bh);
+    }
+
+    @Benchmark
+    public double threePointsAngle() {
+        return ArcGeometry.threePointsAngle(centerX, centerY,
+                centerX + EXPANDED_RADIUS, centerY, centerX, centerY - EXPANDED_RADIUS);
+    }
+}
@@ -0,0 +1,79 @@
+package com.linroid.filtermenu.library;
+
+/**
+ * Frame timing summary of one expand or collapse animation,
+ * delivered to {@link FilterMenuLayout.OnFrameStatsListener}.
+ */
+public class AnimationFrameStats {
+    private final int state;
+    private final long[] frameDurations;
+    private final long frameIntervalNanos;
+    private final int droppedFrames;
+    private final long worstFrameNanos;
+    private final long totalDurationNanos;
+
+    AnimationFrameStats(int state, long[] frameDurations, long frameIntervalNanos,
+                        int droppedFrames, long worstFrameNanos, long totalDurationNanos) {
+        this.state = state;
+        this.frameDurations = frameDurations;
+        this.frameIntervalNanos = frameIntervalNanos;
+        this.droppedFrames = droppedFrames;
+        this.worstFrameNanos = worstFrameNanos;
+        this.totalDurationNanos = totalDurationNanos;
+    }
+
+    /**
+     * @return {@link FilterMenuLayout#STATE_EXPAND} or {@link FilterMenuLayout#STATE_COLLAPSE}
+     */
+    public int getState() {
+        return state;
+    }
+
+    public int getFrameCount() {
+        return frameDurations.length;
+    }
+
+    /**
+     * @return time between consecutive frames in nanoseconds, in the order they were drawn
+     */
+    public long[] getFrameDurations() {
+        return frameDurations.clone();
+    }
+
+    /**
+     * @return expected time between frames of the display
+     */
+    public long getFrameIntervalNanos() {
+        return frameIntervalNanos;
+    }
+
+    /**
+     * @return vsync intervals which passed without a new frame
+     */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public long getWorstFrameNanos() {
+        return worstFrameNanos;
+    }
+
+    public long getAverageFrameNanos() {
+        return frameDurations.length == 0 ? 0 : totalDurationNanos / frameDurations.length;
+    }
+
+    public long getTotalDurationNanos() {
+        return totalDurationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "AnimationFrameStats{" +
+                "state=" + (state == FilterMenuLayout.STATE_EXPAND ? "expand" : "collapse") +
+                ", frames=" + getFrameCount() +
+                ", dropped=" + droppedFrames +
+                ", worstMs=" + worstFrameNanos / 1000000f +
+                ", averageMs=" + getAverageFrameNanos() / 1000000f +
+                '}';
+    }
+}
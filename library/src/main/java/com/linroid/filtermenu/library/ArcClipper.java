@@ -0,0 +1,359 @@
+package com.linroid.filtermenu.library;
+
+/**
+ * Finds the largest arc of a circle that is visible in a rectangle with rounded corners, minus
+ * any number of excluded rectangles such as display cutouts.
+ * <p>
+ * Every obstacle hides the circle along at most a few arcs, and their ends follow in closed form from the
+ * circle/line and circle/circle intersections. The hidden arcs are merged, and the widest gap between them
+ * is the result. Pure java, and like {@link ArcGeometry} it allocates nothing once its buffers are sized.
+ * <p>
+ * Angles are in degrees, clockwise from the positive x axis since y grows downwards.
+ */
+public final class ArcClipper {
+    private static final double TWO_PI = Math.PI * 2;
+    /**
+     * sets built while clipping have at most this many arcs, see {@link #intersect(double[], int, double[], int, double[])}
+     */
+    private static final int SCRATCH_SIZE = 16;
+
+    private double centerX;
+    private double centerY;
+    private double radius;
+    private double left, top, right, bottom;
+    /**
+     * radii of the top left, top right, bottom right and bottom left corner *
+     */
+    private final double[] cornerRadii = new double[4];
+    /**
+     * excluded rectangles, left, top, right, bottom each *
+     */
+    private double[] exclusions = new double[4 * 4];
+    private int exclusionCount;
+
+    /**
+     * hidden arcs, start and end radian each, start in [0, 2pi) and end > start *
+     */
+    private double[] hidden = new double[2 * 16];
+    private int hiddenCount;
+    private final double[] scratchA = new double[2 * SCRATCH_SIZE];
+    private final double[] scratchB = new double[2 * SCRATCH_SIZE];
+    private final double[] scratchC = new double[2 * SCRATCH_SIZE];
+    private final double[] merged = new double[2 * SCRATCH_SIZE];
+
+    private double fromAngle;
+    private double toAngle = 360;
+
+    public void setCircle(double centerX, double centerY, double radius) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.radius = radius;
+    }
+
+    /**
+     * set the rectangle the arc must stay in
+     */
+    public void setBounds(double left, double top, double right, double bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    /**
+     * round the corners of the bounds, e.g. with the rounded corners of the window, 0 for square corners
+     */
+    public void setCornerRadii(double topLeft, double topRight, double bottomRight, double bottomLeft) {
+        cornerRadii[0] = topLeft;
+        cornerRadii[1] = topRight;
+        cornerRadii[2] = bottomRight;
+        cornerRadii[3] = bottomLeft;
+    }
+
+    public void clearExclusions() {
+        exclusionCount = 0;
+    }
+
+    /**
+     * exclude a rectangle from the bounds, e.g. a display cutout
+     */
+    public void addExclusion(double left, double top, double right, double bottom) {
+        if (right <= left || bottom <= top) {
+            return;
+        }
+        if (exclusions.length < (exclusionCount + 1) * 4) {
+            double[] grown = new double[exclusions.length * 2];
+            System.arraycopy(exclusions, 0, grown, 0, exclusionCount * 4);
+            exclusions = grown;
+        }
+        int i = exclusionCount * 4;
+        exclusions[i] = left;
+        exclusions[i + 1] = top;
+        exclusions[i + 2] = right;
+        exclusions[i + 3] = bottom;
+        exclusionCount++;
+    }
+
+    public int getExclusionCount() {
+        return exclusionCount;
+    }
+
+    /**
+     * start angle of the largest visible arc
+     */
+    public double getFromAngle() {
+        return fromAngle;
+    }
+
+    /**
+     * end angle of the largest visible arc, greater than {@link #getFromAngle()} and at most 360 degrees past it
+     */
+    public double getToAngle() {
+        return toAngle;
+    }
+
+    /**
+     * find the largest visible arc. If the circle is fully visible, or fully hidden, the arc is the whole circle
+     *
+     * @return false if no part of the circle is visible
+     */
+    public boolean solve() {
+        return solve(true);
+    }
+
+    /**
+     * @param withExclusions false to clip against the rounded bounds only, ignoring the excluded rectangles
+     * @see #solve()
+     */
+    public boolean solve(boolean withExclusions) {
+        hiddenCount = 0;
+        if (radius <= 0) {
+            fromAngle = 0;
+            toAngle = 360;
+            return true;
+        }
+        // outside each edge of the bounds
+        addHidden(scratchA, cosBelow(0, (left - centerX) / radius, scratchA));
+        addHidden(scratchA, cosAbove(0, (right - centerX) / radius, scratchA));
+        addHidden(scratchA, cosBelow(Math.PI / 2, (top - centerY) / radius, scratchA));
+        addHidden(scratchA, cosAbove(Math.PI / 2, (bottom - centerY) / radius, scratchA));
+
+        // the corner squares, outside of the quarter circles rounding them
+        addCorner(cornerRadii[0], left, top, 1, 1);
+        addCorner(cornerRadii[1], right, top, -1, 1);
+        addCorner(cornerRadii[2], right, bottom, -1, -1);
+        addCorner(cornerRadii[3], left, bottom, 1, -1);
+
+        int excluded = withExclusions ? exclusionCount : 0;
+        for (int i = 0; i < excluded * 4; i += 4) {
+            int count = rectArcs(exclusions[i], exclusions[i + 1], exclusions[i + 2], exclusions[i + 3], scratchA);
+            addHidden(scratchA, count);
+        }
+        return findLargestGap();
+    }
+
+    /**
+     * hide the part of a rounded corner's square that lies outside its quarter circle
+     *
+     * @param x    x of the corner
+     * @param y    y of the corner
+     * @param dirX 1 if the bounds extend rightwards from the corner, -1 if leftwards
+     * @param dirY 1 if the bounds extend downwards from the corner, -1 if upwards
+     */
+    private void addCorner(double cornerRadius, double x, double y, int dirX, int dirY) {
+        if (cornerRadius <= 0) {
+            return;
+        }
+        // the quarter circle is centered on the inner corner of the square
+        double cx = x + dirX * cornerRadius;
+        double cy = y + dirY * cornerRadius;
+        int count = rectArcs(Math.min(x, cx), Math.min(y, cy), Math.max(x, cx), Math.max(y, cy), scratchA);
+        if (count == 0) {
+            return;
+        }
+        double dx = cx - centerX;
+        double dy = cy - centerY;
+        double d = Math.sqrt(dx * dx + dy * dy);
+        int outside;
+        if (d == 0) {
+            outside = radius > cornerRadius ? full(scratchB) : 0;
+        } else {
+            // |p - c|^2 > cornerRadius^2 <=> cos(angle - direction to c) < (r^2 + d^2 - cornerRadius^2) / 2rd
+            double k = (radius * radius + d * d - cornerRadius * cornerRadius) / (2 * radius * d);
+            outside = cosBelow(Math.atan2(dy, dx), k, scratchB);
+        }
+        addHidden(scratchC, intersect(scratchA, count, scratchB, outside, scratchC));
+    }
+
+    /**
+     * arcs of the circle inside a rectangle, the intersection of the arcs between its vertical and its
+     * horizontal edges
+     *
+     * @return count of arcs written to out
+     */
+    private int rectArcs(double l, double t, double r, double b, double[] out) {
+        if (r <= centerX - radius || l >= centerX + radius || b <= centerY - radius || t >= centerY + radius) {
+            // off the bounding box of the circle
+            return 0;
+        }
+        // scratchB and scratchC hold the intermediate sets, out is scratchA
+        int count = cosAbove(0, (l - centerX) / radius, scratchB);
+        count = intersect(scratchB, count, scratchC, cosBelow(0, (r - centerX) / radius, scratchC), out);
+        int vertical = cosAbove(Math.PI / 2, (t - centerY) / radius, scratchB);
+        vertical = intersect(scratchB, vertical, scratchC, cosBelow(Math.PI / 2, (b - centerY) / radius, scratchC), scratchB);
+        return intersect(out, count, scratchB, vertical, out);
+    }
+
+    /**
+     * arcs where cos(angle - phase) > k, a single arc centered on the phase
+     *
+     * @return count of arcs written to out
+     */
+    private static int cosAbove(double phase, double k, double[] out) {
+        if (k >= 1) {
+            return 0;
+        }
+        if (k < -1) {
+            return full(out);
+        }
+        double half = Math.acos(k);
+        return arc(phase - half, phase + half, out);
+    }
+
+    /**
+     * arcs where cos(angle - phase) < k, a single arc centered opposite the phase
+     *
+     * @return count of arcs written to out
+     */
+    private static int cosBelow(double phase, double k, double[] out) {
+        if (k <= -1) {
+            return 0;
+        }
+        if (k > 1) {
+            return full(out);
+        }
+        double half = Math.PI - Math.acos(k);
+        return arc(phase + Math.PI - half, phase + Math.PI + half, out);
+    }
+
+    private static int full(double[] out) {
+        out[0] = 0;
+        out[1] = TWO_PI;
+        return 1;
+    }
+
+    /**
+     * write the arc from start to end, split in two if it wraps around 0
+     */
+    private static int arc(double start, double end, double[] out) {
+        double sweep = end - start;
+        if (sweep >= TWO_PI) {
+            return full(out);
+        }
+        start %= TWO_PI;
+        if (start < 0) {
+            start += TWO_PI;
+        }
+        end = start + sweep;
+        if (end <= TWO_PI) {
+            out[0] = start;
+            out[1] = end;
+            return 1;
+        }
+        // keep the arcs sorted by start
+        out[0] = 0;
+        out[1] = end - TWO_PI;
+        out[2] = start;
+        out[3] = TWO_PI;
+        return 2;
+    }
+
+    /**
+     * intersect two sets of sorted, disjoint arcs within [0, 2pi], out may be either input
+     *
+     * @return count of arcs written to out
+     */
+    private int intersect(double[] a, int countA, double[] b, int countB, double[] out) {
+        // the result has fewer than countA + countB arcs, at most one per step of the merge below
+        double[] result = out == a || out == b ? merged : out;
+        int count = 0;
+        int i = 0, j = 0;
+        while (i < countA && j < countB) {
+            double start = Math.max(a[i * 2], b[j * 2]);
+            double end = Math.min(a[i * 2 + 1], b[j * 2 + 1]);
+            if (end > start) {
+                result[count * 2] = start;
+                result[count * 2 + 1] = end;
+                count++;
+            }
+            if (a[i * 2 + 1] < b[j * 2 + 1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        if (result != out) {
+            System.arraycopy(result, 0, out, 0, count * 2);
+        }
+        return count;
+    }
+
+    private void addHidden(double[] arcs, int count) {
+        if (hidden.length < (hiddenCount + count) * 2) {
+            double[] grown = new double[Math.max(hidden.length * 2, (hiddenCount + count) * 2)];
+            System.arraycopy(hidden, 0, grown, 0, hiddenCount * 2);
+            hidden = grown;
+        }
+        for (int i = 0; i < count; i++) {
+            // insertion sort by start, there are only a few arcs
+            double start = arcs[i * 2];
+            double end = arcs[i * 2 + 1];
+            int j = hiddenCount;
+            while (j > 0 && hidden[(j - 1) * 2] > start) {
+                hidden[j * 2] = hidden[(j - 1) * 2];
+                hidden[j * 2 + 1] = hidden[(j - 1) * 2 + 1];
+                j--;
+            }
+            hidden[j * 2] = start;
+            hidden[j * 2 + 1] = end;
+            hiddenCount++;
+        }
+    }
+
+    /**
+     * merge the hidden arcs, and take the widest gap between them as the visible arc
+     */
+    private boolean findLargestGap() {
+        if (hiddenCount == 0) {
+            fromAngle = 0;
+            toAngle = 360;
+            return true;
+        }
+        // the hidden arcs are sorted by start, so the end reached so far separates covered from visible
+        double firstStart = hidden[0];
+        double reached = hidden[1];
+        double bestStart = 0, bestSweep = 0;
+        for (int i = 1; i < hiddenCount; i++) {
+            double start = hidden[i * 2];
+            if (start > reached && start - reached > bestSweep) {
+                bestStart = reached;
+                bestSweep = start - reached;
+            }
+            reached = Math.max(reached, hidden[i * 2 + 1]);
+        }
+        // the gap across 0, from the last end to the first start
+        double wrapSweep = firstStart + TWO_PI - reached;
+        if (wrapSweep > bestSweep) {
+            bestStart = reached;
+            bestSweep = wrapSweep;
+        }
+        if (bestSweep <= 0) {
+            fromAngle = 0;
+            toAngle = 360;
+            return false;
+        }
+        fromAngle = Math.toDegrees(bestStart);
+        toAngle = Math.toDegrees(bestStart + bestSweep);
+        return true;
+    }
+}
@@ -0,0 +1,151 @@
+package com.linroid.filtermenu.library;
+
+/**
+ * Pure java arc math used by {@link FilterMenuLayout}.
+ * <p>
+ * All state lives in primitive fields and fixed size scratch buffers, so once an instance
+ * is created the layout passes allocate nothing.
+ */
+public final class ArcGeometry {
+    private int centerX;
+    private int centerY;
+    private int radius;
+    private int left, top, right, bottom;
+
+    /**
+     * finds the largest arc inside the bounds *
+     */
+    private final ArcClipper clipper = new ArcClipper();
+
+    /**
+     * menu items position start angle *
+     */
+    private double fromAngle;
+    /**
+     * menu items position end angle *
+     */
+    private double toAngle = 360;
+
+    public void setCenter(int x, int y) {
+        this.centerX = x;
+        this.centerY = y;
+    }
+
+    public void setRadius(int radius) {
+        this.radius = radius;
+    }
+
+    /**
+     * set the area the arc must stay in
+     */
+    public void setBounds(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    /**
+     * round the corners of the bounds, e.g. with the rounded corners of the window, 0 for square corners
+     */
+    public void setCornerRadii(int topLeft, int topRight, int bottomRight, int bottomLeft) {
+        clipper.setCornerRadii(topLeft, topRight, bottomRight, bottomLeft);
+    }
+
+    public void clearExclusions() {
+        clipper.clearExclusions();
+    }
+
+    /**
+     * keep the arc out of a rectangle inside the bounds, e.g. a display cutout
+     */
+    public void addExclusion(int left, int top, int right, int bottom) {
+        clipper.addExclusion(left, top, right, bottom);
+    }
+
+    public double getFromAngle() {
+        return fromAngle;
+    }
+
+    public double getToAngle() {
+        return toAngle;
+    }
+
+    /**
+     * find the largest arc of the circle inside the bounds, the menu items are placed on it
+     *
+     * @return false if the corners and exclusions hide the whole circle, the arc then only keeps inside the
+     * bounds, so the items rather overlap an exclusion than disappear
+     */
+    public boolean clipArc() {
+        clipper.setCircle(centerX, centerY, radius);
+        clipper.setBounds(left, top, right, bottom);
+        boolean visible = clipper.solve(true);
+        if (!visible) {
+            clipper.solve(false);
+        }
+        fromAngle = clipper.getFromAngle();
+        toAngle = clipper.getToAngle();
+        return visible;
+    }
+
+    /**
+     * calculate the center of the menu item at {@code index} on the arc between
+     * {@link #getFromAngle()} and {@link #getToAngle()}, the arc is divided evenly into {@code count} slots
+     *
+     * @param index      index of the item
+     * @param count      total item count
+     * @param itemRadius radius of the arc the items placed on
+     * @param out        receives x at 0 and y at 1
+     */
+    public void calculateItemPosition(int index, int count, float itemRadius, float[] out) {
+        calculateSlotPosition(index + .5, count, itemRadius, out);
+    }
+
+    /**
+     * calculate the point at a fractional slot of the arc divided evenly into {@code count} slots,
+     * slot 0 is {@link #getFromAngle()} and slot {@code count} is {@link #getToAngle()}
+     *
+     * @param slot       position on the arc in slots, may lie outside 0..count
+     * @param count      total slot count
+     * @param itemRadius radius of the arc the items placed on
+     * @param out        receives x at 0 and y at 1
+     */
+    public void calculateSlotPosition(double slot, int count, float itemRadius, float[] out) {
+        double sweep = toAngle - fromAngle;
+        double radian = Math.toRadians(fromAngle + sweep * slot / count);
+        out[0] = (float) (centerX + itemRadius * Math.cos(radian));
+        out[1] = (float) (centerY + itemRadius * Math.sin(radian));
+    }
+
+    /**
+     * judge if an point in the area or not
+     *
+     * @param offsetRatio expand the area by its width multiplied by this ratio
+     */
+    public static boolean inArea(int x, int y, int left, int top, int right, int bottom, float offsetRatio) {
+        int offset = (int) ((right - left) * offsetRatio);
+        return x >= left - offset && x <= right + offset &&
+                y >= top - offset && y <= bottom + offset;
+    }
+
+    /**
+     * calculate the vertex's angle of triangle consist of vertex, point a, point b;
+     */
+    public static double threePointsAngle(int vx, int vy, int ax, int ay, int bx, int by) {
+        double b = pointsDistance(vx, vy, ax, ay);
+        double c = pointsDistance(ax, ay, bx, by);
+        double a = pointsDistance(bx, by, vx, vy);
+
+        return Math.toDegrees(Math.acos((a * a + b * b - c * c) / (2 * a * b)));
+    }
+
+    /**
+     * calculate distance of two points
+     */
+    public static double pointsDistance(int ax, int ay, int bx, int by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
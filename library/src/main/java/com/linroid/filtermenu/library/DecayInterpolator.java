@@ -0,0 +1,20 @@
+package com.linroid.filtermenu.library;
+
+import android.animation.TimeInterpolator;
+
+/**
+ * Exponential decay of a fling: the speed falls to 1% over the animation, scaled so the animation ends
+ * exactly at its target. Its duration is {@link #TIME_CONSTANTS} times the decay time constant.
+ */
+final class DecayInterpolator implements TimeInterpolator {
+    /**
+     * time constants the speed takes to fall to 1% *
+     */
+    static final float TIME_CONSTANTS = (float) Math.log(100);
+    private static final float END = (float) (1 - Math.exp(-TIME_CONSTANTS));
+
+    @Override
+    public float getInterpolation(float input) {
+        return (float) (1 - Math.exp(-TIME_CONSTANTS * input)) / END;
+    }
+}
@@ -1,18 +1,21 @@
 package com.linroid.filtermenu.library;
 
+import android.app.Activity;
 import android.content.Context;
+import android.content.res.Resources;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.util.Log;
 import android.view.LayoutInflater;
-import android.view.Menu;
-import android.view.MenuItem;
 import android.view.View;
 import android.widget.ImageButton;
-import android.widget.PopupMenu;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 
 /**
@@ -23,6 +26,24 @@ public class FilterMenu implements IMenu {
     private List<Item> items = new ArrayList<>();
     private OnMenuChangeListener listener;
     private FilterMenuLayout layout;
+    private ItemViewPool itemViewPool;
+    private IconLoader iconLoader;
+    /**
+     * context of the builder, used to create inserted items *
+     */
+    private Context context;
+    /**
+     * false while a lazy menu only holds item descriptors, its views are neither created nor added *
+     */
+    private boolean materialized = true;
+    /**
+     * an idle handler of {@link #materializeWhenIdle()} is queued *
+     */
+    private boolean idleMaterializePending;
+    /**
+     * true while {@link #applyItems(List)} runs, the layout is told about the changes once at the end *
+     */
+    private boolean applying;
 //    /**
 //     * add menu item to layout
 //     *
@@ -48,18 +69,213 @@ public class FilterMenu implements IMenu {
     public void setListener(OnMenuChangeListener listener) {
         this.listener = listener;
         for (final Item item : getItems()) {
-            item.getView().setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    Log.e("FilterMenu", "onClick");
-                    if (getListener() != null) {
-                        getListener().onMenuItemClick(item.getView(), item.getPosition());
-                    }
-                    if (layout != null) {
-                        layout.collapse(true);
-                    }
+            if (item.getView() != null) {
+                setClickListener(item);
+            }
+        }
+    }
+
+    private void setClickListener(final Item item) {
+        item.getView().setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                Log.e("FilterMenu", "onClick");
+                if (getListener() != null) {
+                    getListener().onMenuItemClick(item.getView(), item.getPosition());
                 }
-            });
+                if (layout != null) {
+                    layout.collapse(true);
+                }
+            }
+        });
+    }
+
+    /**
+     * insert an item at the position, its button is taken from the {@link ItemViewPool} or inflated.
+     * Only views of the changed items are touched, the change animates on the next layout while the menu is expanded
+     *
+     * @return the inserted item
+     */
+    public Item insertItem(int position, ItemInfo info) {
+        if (context == null) {
+            throw new IllegalStateException("Only menus created by FilterMenu.Builder can create items");
+        }
+        Builder factory = newFactory();
+        Item item = factory.createItem(info, position);
+        if (materialized) {
+            factory.createView(item);
+        }
+        insertItem(position, item);
+        return item;
+    }
+
+    /**
+     * insert an item showing a custom view at the position
+     *
+     * @return the inserted item
+     */
+    public Item insertItem(int position, View customView) {
+        Item item = new Item();
+        item.setView(customView);
+        customView.setTag(item);
+        insertItem(position, item);
+        return item;
+    }
+
+    private void insertItem(int position, Item item) {
+        items.add(position, item);
+        updatePositions(position, items.size());
+        if (item.getView() != null) {
+            setClickListener(item);
+        }
+        if (viewsInLayout()) {
+            layout.addItemView(position, item.getView());
+        }
+        notifyItemsChanged();
+    }
+
+    /**
+     * remove the item at the position, its button goes back to the {@link ItemViewPool} once it faded out
+     *
+     * @return the removed item
+     */
+    public Item removeItem(int position) {
+        Item item = items.remove(position);
+        updatePositions(position, items.size());
+        ItemViewPool pool = item.isRecyclable() ? itemViewPool : null;
+        if (item.getView() != null && viewsInLayout()) {
+            layout.removeItemView(item.getView(), pool);
+        } else if (item.getView() != null && pool != null) {
+            pool.release((ImageButton) item.getView());
+        }
+        notifyItemsChanged();
+        return item;
+    }
+
+    /**
+     * move an item, the items in between shift by one slot
+     */
+    public void moveItem(int fromPosition, int toPosition) {
+        if (fromPosition == toPosition) {
+            return;
+        }
+        items.add(toPosition, items.remove(fromPosition));
+        updatePositions(Math.min(fromPosition, toPosition), Math.max(fromPosition, toPosition) + 1);
+        if (viewsInLayout()) {
+            layout.moveItemView(fromPosition, toPosition);
+        }
+        notifyItemsChanged();
+    }
+
+    /**
+     * change id, title, enabled state and icon of the item in place, the icon only changes on buttons created
+     * by the builder and is only loaded if its resource differs
+     */
+    public void updateItem(int position, ItemInfo info) {
+        Item item = items.get(position);
+        updateItem(item, info);
+        notifyItemsChanged();
+    }
+
+    private void updateItem(Item item, ItemInfo info) {
+        View view = item.getView();
+        item.setId(info.getId());
+        item.setEnabled(info.isEnabled());
+        item.setTitle(info.resolveTitle(context != null ? context.getResources() : null));
+        if (view == null) {
+            // a descriptor of a lazy menu, the icon is loaded when its view is created
+            if (item.getIconResId() != info.getIconResId()) {
+                item.setIcon(null);
+                item.setIconResId(info.getIconResId());
+            }
+            return;
+        }
+        view.setEnabled(info.isEnabled());
+        view.setContentDescription(item.getTitle());
+        if (item.isRecyclable() && item.getIconResId() != info.getIconResId() && iconLoader != null) {
+            item.setIcon(null);
+            item.setIconResId(info.getIconResId());
+            if (info.getIconResId() != 0) {
+                iconLoader.bindIcon(item, (ImageButton) view, layout != null ? layout.getItemIconSize() : 0);
+            } else {
+                ((ImageButton) view).setImageDrawable(null);
+            }
+        } else if (item.isRecyclable() && item.getIconResId() != info.getIconResId() && context != null) {
+            Drawable icon = info.getIconResId() != 0 ? context.getResources().getDrawable(info.getIconResId()) : null;
+            item.setIcon(icon);
+            item.setIconResId(info.getIconResId());
+            ((ImageButton) view).setImageDrawable(icon);
+        }
+    }
+
+    /**
+     * show the visible items of the list with as few view changes as possible, like RecyclerView's DiffUtil.
+     * Items are matched by id: items missing from the list are removed, new ones inserted, and kept ones
+     * moved and updated in place. Items without an id never match. All changes animate together on the next layout.
+     */
+    public void applyItems(List<ItemInfo> infos) {
+        applying = true;
+        for (int i = items.size() - 1; i >= 0; i--) {
+            if (indexOfInfo(infos, items.get(i).getId()) < 0) {
+                removeItem(i);
+            }
+        }
+        int position = 0;
+        for (ItemInfo info : infos) {
+            if (!info.isVisible()) {
+                continue;
+            }
+            int current = indexOfItem(info.getId(), position);
+            if (current < 0) {
+                insertItem(position, info);
+            } else {
+                moveItem(current, position);
+                updateItem(items.get(position), info);
+            }
+            position++;
+        }
+        // items whose id is listed fewer times than it was shown
+        for (int i = items.size() - 1; i >= position; i--) {
+            removeItem(i);
+        }
+        applying = false;
+        notifyItemsChanged();
+    }
+
+    private void notifyItemsChanged() {
+        if (layout != null && !applying) {
+            layout.onMenuItemsChanged();
+        }
+    }
+
+    private static int indexOfInfo(List<ItemInfo> infos, int id) {
+        if (id == View.NO_ID) {
+            return -1;
+        }
+        for (int i = 0; i < infos.size(); i++) {
+            ItemInfo info = infos.get(i);
+            if (info.getId() == id && info.isVisible()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOfItem(int id, int start) {
+        if (id == View.NO_ID) {
+            return -1;
+        }
+        for (int i = start; i < items.size(); i++) {
+            if (items.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void updatePositions(int from, int to) {
+        for (int i = from; i < to; i++) {
+            items.get(i).setPosition(i);
         }
     }
 
@@ -84,10 +300,179 @@ public class FilterMenu implements IMenu {
         if (view == null) {
             return;
         }
-        for (final Item item : getItems()) {
-            layout.addView(item.getView());
+        FilterMenuTracer tracer = view.getTracer();
+        if (tracer != null) {
+            tracer.beginSection(FilterMenuTracer.SECTION_SET_MENU_LAYOUT);
+        }
+        if (materialized && !layout.virtualizes(this)) {
+            for (final Item item : getItems()) {
+                layout.addView(item.getView());
+            }
         }
         layout.setMenu(this);
+        if (tracer != null) {
+            tracer.endSection();
+        }
+    }
+
+    public ItemViewPool getItemViewPool() {
+        return itemViewPool;
+    }
+
+    public void setItemViewPool(ItemViewPool pool) {
+        this.itemViewPool = pool;
+    }
+
+    /**
+     * remove the items from the layout and return the buttons inflated by the builder to the
+     * {@link ItemViewPool}, the menu should not be used anymore after this call
+     */
+    public void detach() {
+        for (Item item : getItems()) {
+            if (item.getView() == null) {
+                continue;
+            }
+            if (viewsInLayout()) {
+                layout.removeView(item.getView());
+            }
+            if (itemViewPool != null && item.isRecyclable()) {
+                itemViewPool.release((ImageButton) item.getView());
+            }
+        }
+        if (layout != null) {
+            layout.setMenu(null);
+            layout = null;
+        }
+    }
+
+    /**
+     * @return true if the item views are children of the layout, false while the menu is lazy or virtualized
+     */
+    private boolean viewsInLayout() {
+        return layout != null && materialized && !layout.isVirtualized();
+    }
+
+    /**
+     * set the layout showing the items without adding them, used by {@link FilterMenuLayout#bind(FilterMenu)}
+     */
+    void setLayout(FilterMenuLayout layout) {
+        this.layout = layout;
+    }
+
+    void setContext(Context context) {
+        this.context = context;
+    }
+
+    public IconLoader getIconLoader() {
+        return iconLoader;
+    }
+
+    void setIconLoader(IconLoader iconLoader) {
+        this.iconLoader = iconLoader;
+    }
+
+    /**
+     * @return a builder creating items the way this menu's builder did
+     */
+    private Builder newFactory() {
+        Builder factory = new Builder(context).withItemViewPool(itemViewPool).withIconLoader(iconLoader);
+        // only sizes the icons, the factory never builds a menu
+        factory.layout = layout;
+        return factory;
+    }
+
+    /**
+     * @return false if the menu was built with lazy items whose views were not created yet
+     */
+    public boolean isMaterialized() {
+        return materialized;
+    }
+
+    void setMaterialized(boolean materialized) {
+        this.materialized = materialized;
+    }
+
+    /**
+     * create the item views of a lazy menu and add them to its layout, the layout calls this on the first expand.
+     * Call it earlier as a prefetch hint, e.g. when the menu is about to be opened
+     */
+    public void materialize() {
+        if (materialized) {
+            return;
+        }
+        Builder factory = null;
+        for (Item item : items) {
+            if (item.getView() == null) {
+                if (factory == null) {
+                    factory = newFactory();
+                }
+                factory.createView(item);
+                setClickListener(item);
+            }
+        }
+        materialized = true;
+        if (viewsInLayout()) {
+            for (Item item : items) {
+                layout.addView(item.getView());
+            }
+        }
+    }
+
+    /**
+     * forget the buttons of the builder created items, {@link FilterMenuLayout#bind(FilterMenu)} gave them to
+     * another menu. The menu turns lazy, its views are created again when it is shown
+     */
+    void releaseViews() {
+        for (Item item : items) {
+            if (item.isRecyclable()) {
+                item.view = null;
+            }
+        }
+        materialized = false;
+    }
+
+    /**
+     * create views of a lazy menu until the deadline without adding them to the layout, at least one per call
+     *
+     * @param deadlineNanos {@link System#nanoTime()} at which to stop
+     * @return true if some items still have no view
+     */
+    boolean prefetch(long deadlineNanos) {
+        if (materialized) {
+            return false;
+        }
+        Builder factory = null;
+        for (Item item : items) {
+            if (item.getView() != null) {
+                continue;
+            }
+            if (factory == null) {
+                factory = newFactory();
+            } else if (System.nanoTime() >= deadlineNanos) {
+                return true;
+            }
+            factory.createView(item);
+            setClickListener(item);
+        }
+        return false;
+    }
+
+    /**
+     * {@link #materialize()} once the main thread has nothing else to do
+     */
+    public void materializeWhenIdle() {
+        if (materialized || idleMaterializePending) {
+            return;
+        }
+        idleMaterializePending = true;
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                idleMaterializePending = false;
+                materialize();
+                return false;
+            }
+        });
     }
 
     public static interface OnMenuChangeListener {
@@ -100,10 +485,16 @@ public class FilterMenu implements IMenu {
 
     public static class Builder {
         OnMenuChangeListener listener;
-        private List<Item> items = new ArrayList<>();
+        /**
+         * what was added, items are only created in {@link #build()} or {@link #buildAsync(Executor, Callback)} *
+         */
+        private List<ItemSource> sources = new ArrayList<>();
         private Context ctx;
         private LayoutInflater inflater;
         private FilterMenuLayout layout;
+        private ItemViewPool itemViewPool;
+        private boolean lazyItems;
+        private IconLoader iconLoader;
 
         public Builder(Context ctx) {
             this.ctx = ctx;
@@ -115,43 +506,57 @@ public class FilterMenu implements IMenu {
             return this;
         }
 
+        /**
+         * take item buttons from the pool instead of inflating them, they go back on {@link FilterMenu#detach()}
+         */
+        public Builder withItemViewPool(ItemViewPool pool) {
+            this.itemViewPool = pool;
+            return this;
+        }
+
+        /**
+         * decode icon resources in the background through the loader, buttons show a placeholder until then.
+         * Share {@link IconLoader#getInstance(Context)} so menus showing the same icons decode them once
+         */
+        public Builder withIconLoader(IconLoader loader) {
+            this.iconLoader = loader;
+            return this;
+        }
+
+        /**
+         * only keep descriptors of the items until the menu is first expanded or {@link FilterMenu#materialize()}
+         * is called, icons are not loaded and buttons are not inflated before that. Custom views are kept as they are
+         */
+        public Builder withLazyItems(boolean lazy) {
+            this.lazyItems = lazy;
+            return this;
+        }
+
+        /**
+         * add the visible items of a menu resource, the xml is parsed once per process
+         */
         public Builder inflate(int menuResId) {
-            PopupMenu popupMenu = new PopupMenu(ctx, null);
-            popupMenu.inflate(menuResId);
-            Menu menu = popupMenu.getMenu();
-            for (int i = 0; i < menu.size(); i++) {
-                MenuItem item = menu.getItem(i);
-                addItem(item.getIcon());
-            }
-            menu.clear();
-            menu = null;
-            popupMenu = null;
+            sources.add(new ItemSource(ItemSource.TYPE_MENU, menuResId, null, null, null));
+            return this;
+        }
+
+        public Builder addItem(ItemInfo info) {
+            sources.add(new ItemSource(ItemSource.TYPE_INFO, 0, info, null, null));
             return this;
         }
 
         public Builder addItem(Drawable icon) {
-            ImageButton view = (ImageButton) inflater.inflate(R.layout.menu_item, null, false);
-            view.setImageDrawable(icon);
-//            TypedValue value = new TypedValue();
-//            ctx.getTheme().resolveAttribute(R.attr.selectableItemBackgroundBorderless, value, true);
-//            view.setBackgroundResource(value.resourceId);
-            addItem(view);
+            sources.add(new ItemSource(ItemSource.TYPE_DRAWABLE, 0, null, icon, null));
             return this;
         }
 
         public Builder addItem(int iconResId) {
-            Drawable icon = ctx.getResources().getDrawable(iconResId);
-            addItem(icon);
+            sources.add(new ItemSource(ItemSource.TYPE_ICON_RES, iconResId, null, null, null));
             return this;
         }
 
         public Builder addItem(View customView) {
-            Item item = new Item();
-            item.setView(customView);
-            item.setPosition(items.size());
-            item.getView().setTag(item);
-            items.add(item);
-
+            sources.add(new ItemSource(ItemSource.TYPE_VIEW, 0, null, null, customView));
             return this;
         }
 
@@ -161,20 +566,299 @@ public class FilterMenu implements IMenu {
         }
 
         public FilterMenu build() {
+            return attachMenu(createItems());
+        }
+
+        /**
+         * parse menu resources, load icons and inflate item views on the executor,
+         * then attach the menu to the layout on the main thread.
+         * If inflating fails off the main thread, the items are created on the main thread instead.
+         * Nothing is attached if meanwhile the activity finished or the layout was detached from its window.
+         *
+         * @param callback notified on the main thread when the menu is attached, may be null
+         */
+        public void buildAsync(Executor executor, final Callback callback) {
+            final Handler handler = new Handler(Looper.getMainLooper());
+            final boolean wasAttached = layout != null && layout.getWindowToken() != null;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    List<Item> items;
+                    try {
+                        items = createItems();
+                    } catch (RuntimeException e) {
+                        Log.w("FilterMenu", "Failed to build menu in the background, falling back to the main thread", e);
+                        items = null;
+                    }
+                    final List<Item> result = items;
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (ctx instanceof Activity && ((Activity) ctx).isFinishing()
+                                    || wasAttached && layout.getWindowToken() == null) {
+                                return;
+                            }
+                            FilterMenu menu = attachMenu(result != null ? result : createItems());
+                            if (callback != null) {
+                                callback.onMenuBuilt(menu);
+                            }
+                        }
+                    });
+                }
+            });
+        }
+
+        private FilterMenu attachMenu(List<Item> items) {
             FilterMenu menu = new FilterMenu();
             menu.setItems(items);
+            menu.setItemViewPool(itemViewPool);
+            menu.setContext(ctx);
+            menu.setMaterialized(!lazyItems && hasViews(items));
+            menu.setIconLoader(iconLoader);
             menu.setListener(this.listener);
             menu.setMenuLayout(this.layout);
             return menu;
         }
+
+        private List<Item> createItems() {
+            List<Item> items = new ArrayList<>();
+            FilterMenuTracer tracer = layout != null ? layout.getTracer() : FilterMenuLayout.getGlobalTracer();
+            for (ItemSource source : sources) {
+                if (tracer != null) {
+                    tracer.beginSection(source.type == ItemSource.TYPE_MENU ? FilterMenuTracer.SECTION_INFLATE : FilterMenuTracer.SECTION_ADD_ITEM);
+                }
+                switch (source.type) {
+                    case ItemSource.TYPE_MENU:
+                        for (ItemInfo info : MenuResourceParser.parse(ctx.getResources(), source.resId)) {
+                            if (info.isVisible()) {
+                                items.add(createItem(info, items.size()));
+                            }
+                        }
+                        break;
+                    case ItemSource.TYPE_INFO:
+                        items.add(createItem(source.info, items.size()));
+                        break;
+                    case ItemSource.TYPE_DRAWABLE:
+                        items.add(createIconItem(source.icon, 0, items.size()));
+                        break;
+                    case ItemSource.TYPE_ICON_RES:
+                        items.add(createIconItem(null, source.resId, items.size()));
+                        break;
+                    case ItemSource.TYPE_VIEW:
+                        items.add(createItem(source.view, items.size(), false));
+                        break;
+                }
+                if (tracer != null) {
+                    tracer.endSection();
+                }
+            }
+            // a virtualized layout shows the items on its own slot buttons, only lazy descriptors are needed
+            if (!lazyItems && (layout == null || !layout.virtualizes(items))) {
+                for (Item item : items) {
+                    if (item.getView() == null) {
+                        createView(item);
+                    }
+                }
+            }
+            return items;
+        }
+
+        private static boolean hasViews(List<Item> items) {
+            for (Item item : items) {
+                if (item.getView() == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Item createItem(ItemInfo info, int position) {
+            Item item = new Item();
+            item.setId(info.getId());
+            item.setIconResId(info.getIconResId());
+            item.setEnabled(info.isEnabled());
+            item.setTitle(info.resolveTitle(ctx.getResources()));
+            item.setPosition(position);
+            item.setRecyclable(true);
+            return item;
+        }
+
+        /**
+         * @param icon      the icon, or null to load it from iconResId when the view is created
+         * @param iconResId resource of the icon, 0 if icon is given
+         */
+        private Item createIconItem(Drawable icon, int iconResId, int position) {
+            Item item = new Item();
+            item.setIcon(icon);
+            item.setIconResId(iconResId);
+            item.setPosition(position);
+            item.setRecyclable(true);
+            return item;
+        }
+
+        /**
+         * load the icon of an item descriptor and create its button
+         */
+        void createView(Item item) {
+            boolean async = item.getIcon() == null && item.getIconResId() != 0 && iconLoader != null;
+            if (item.getIcon() == null && !async) {
+                item.setIcon(loadIcon(item.getIconResId()));
+            }
+            ImageButton view = createItemView(item.getIcon());
+            view.setEnabled(item.isEnabled());
+            view.setContentDescription(item.getTitle());
+            view.setTag(item);
+            item.setView(view);
+            if (async) {
+                // the size of the items the layout already shows, 0 before it measured any
+                iconLoader.bindIcon(item, view, layout != null ? layout.getItemIconSize() : 0);
+            }
+        }
+
+        private Item createItem(View view, int position, boolean recyclable) {
+            Item item = new Item();
+            item.setView(view);
+            item.setPosition(position);
+            item.setRecyclable(recyclable);
+            item.getView().setTag(item);
+            return item;
+        }
+
+        private ImageButton createItemView(Drawable icon) {
+            ImageButton view = itemViewPool != null ? itemViewPool.acquire(ctx) : null;
+            if (view == null) {
+                view = (ImageButton) inflater.inflate(R.layout.menu_item, null, false);
+            }
+            view.setImageDrawable(icon);
+//            TypedValue value = new TypedValue();
+//            ctx.getTheme().resolveAttribute(R.attr.selectableItemBackgroundBorderless, value, true);
+//            view.setBackgroundResource(value.resourceId);
+            return view;
+        }
+
+        private Drawable loadIcon(int iconResId) {
+            return iconResId != 0 ? ctx.getResources().getDrawable(iconResId) : null;
+        }
+
+        public interface Callback {
+            void onMenuBuilt(FilterMenu menu);
+        }
+
+        /**
+         * one call to inflate or addItem
+         */
+        private static class ItemSource {
+            static final int TYPE_MENU = 0;
+            static final int TYPE_INFO = 1;
+            static final int TYPE_DRAWABLE = 2;
+            static final int TYPE_ICON_RES = 3;
+            static final int TYPE_VIEW = 4;
+
+            final int type;
+            /**
+             * menu or icon resource id *
+             */
+            final int resId;
+            final ItemInfo info;
+            final Drawable icon;
+            final View view;
+
+            ItemSource(int type, int resId, ItemInfo info, Drawable icon, View view) {
+                this.type = type;
+                this.resId = resId;
+                this.info = info;
+                this.icon = icon;
+                this.view = view;
+            }
+        }
+    }
+
+    /**
+     * an item declared in a menu resource, see {@link Builder#inflate(int)}
+     */
+    public static class ItemInfo {
+        private final int id;
+        private final int iconResId;
+        private final CharSequence title;
+        /**
+         * resource of the title, resolved when an item is built so it follows configuration changes *
+         */
+        private final int titleResId;
+        private final int order;
+        private final boolean enabled;
+        private final boolean visible;
+
+        public ItemInfo(int id, int iconResId, CharSequence title, int order, boolean enabled, boolean visible) {
+            this(id, iconResId, title, 0, order, enabled, visible);
+        }
+
+        ItemInfo(int id, int iconResId, CharSequence title, int titleResId, int order, boolean enabled, boolean visible) {
+            this.id = id;
+            this.iconResId = iconResId;
+            this.title = title;
+            this.titleResId = titleResId;
+            this.order = order;
+            this.enabled = enabled;
+            this.visible = visible;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getIconResId() {
+            return iconResId;
+        }
+
+        public CharSequence getTitle() {
+            return title;
+        }
+
+        /**
+         * @return the title, read from its resource in the current configuration if it was declared as one
+         */
+        CharSequence resolveTitle(Resources res) {
+            return titleResId != 0 && res != null ? res.getText(titleResId) : title;
+        }
+
+        public int getOrder() {
+            return order;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public boolean isVisible() {
+            return visible;
+        }
     }
 
     public static class Item {
         private View view;
+        /**
+         * icon of an item created by the builder, kept so the item can be rebound to another button *
+         */
+        private Drawable icon;
+        /**
+         * resource of the icon if the item was created from an {@link ItemInfo} *
+         */
+        private int iconResId;
+        private int id = View.NO_ID;
+        private CharSequence title;
+        private boolean enabled = true;
         private int x;
         private int y;
         private int position;
+        /**
+         * true if the view was inflated by the builder and can go back to an {@link ItemViewPool} *
+         */
+        private boolean recyclable;
         private Rect bounds = new Rect(0, 0, 0, 0);
+        /**
+         * bounds padded for touch, updated on layout *
+         */
+        private final Rect hitBounds = new Rect();
 
         public View getView() {
             return view;
@@ -185,6 +869,22 @@ public class FilterMenu implements IMenu {
             view.setAlpha(0f);
         }
 
+        public Drawable getIcon() {
+            return icon;
+        }
+
+        public void setIcon(Drawable icon) {
+            this.icon = icon;
+        }
+
+        int getIconResId() {
+            return iconResId;
+        }
+
+        void setIconResId(int iconResId) {
+            this.iconResId = iconResId;
+        }
+
         public int getX() {
             return x;
         }
@@ -205,10 +905,45 @@ public class FilterMenu implements IMenu {
             return position;
         }
 
+        /**
+         * @return id from the menu resource, or {@link View#NO_ID}
+         */
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public CharSequence getTitle() {
+            return title;
+        }
+
+        public void setTitle(CharSequence title) {
+            this.title = title;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
         public void setPosition(int position) {
             this.position = position;
         }
 
+        boolean isRecyclable() {
+            return recyclable;
+        }
+
+        void setRecyclable(boolean recyclable) {
+            this.recyclable = recyclable;
+        }
+
         public void setBounds(int left, int top, int right, int bottom) {
             this.bounds.set(left, top, right, bottom);
         }
@@ -220,5 +955,9 @@ public class FilterMenu implements IMenu {
         public void setBounds(Rect bounds) {
             this.bounds = bounds;
         }
+
+        public Rect getHitBounds() {
+            return hitBounds;
+        }
     }
 }
@@ -5,6 +5,7 @@ import android.graphics.Canvas;
 import android.graphics.ColorFilter;
 import android.graphics.Paint;
 import android.graphics.PixelFormat;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 
 /**
@@ -18,6 +19,7 @@ public class FilterMenuDrawable extends Drawable {
 
     private int lineWidth = 8;
     private float expandProgress = 0;
+    private final Rect dirtyBounds = new Rect();
 
     public FilterMenuDrawable(Context ctx, int color, int radius) {
         this.ctx = ctx;
@@ -44,6 +46,11 @@ public class FilterMenuDrawable extends Drawable {
         invalidateSelf();
     }
 
+    public void setRadius(int radius) {
+        this.radius = radius;
+        invalidateSelf();
+    }
+
     @Override
     public int getIntrinsicWidth() {
         return (int) (radius * 0.8f);
@@ -115,6 +122,17 @@ public class FilterMenuDrawable extends Drawable {
         canvas.drawLine(centerX - len / 2, y, centerX + len / 2, y, paint);
     }
 
+    /**
+     * the lines reach past the bounds by their stroke, and the horizontal line by a tenth of the width
+     */
+    @Override
+    public Rect getDirtyBounds() {
+        Rect bounds = getBounds();
+        int overhang = lineWidth + (int) Math.ceil(bounds.width() * .1f);
+        dirtyBounds.set(bounds.left - overhang, bounds.top - overhang, bounds.right + overhang, bounds.bottom + overhang);
+        return dirtyBounds;
+    }
+
     @Override
     public void setAlpha(int alpha) {
         paint.setAlpha(alpha);
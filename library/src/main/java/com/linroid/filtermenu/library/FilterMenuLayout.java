@@ -1,32 +1,37 @@
 package com.linroid.filtermenu.library;
 
-import android.animation.ArgbEvaluator;
-import android.animation.ObjectAnimator;
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.Configuration;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Outline;
 import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.PathMeasure;
 import android.graphics.Point;
 import android.graphics.Rect;
-import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewOutlineProvider;
-import android.view.animation.OvershootInterpolator;
+import android.view.VelocityTracker;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
+import android.view.ViewPropertyAnimator;
+import android.view.WindowInsets;
+import android.view.WindowManager;
+import android.widget.ImageButton;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -41,8 +46,48 @@ public class FilterMenuLayout extends ViewGroup {
     public static final int STATE_COLLAPSE = 0x1;
     public static final int STATE_EXPAND = 0x2;
 
+    /**
+     * circles are drawn in onDraw, every animation frame invalidates the layout
+     */
+    public static final int ANIMATION_MODE_DRAW = 0;
+    /**
+     * circles are recorded once into layer views and animated through their scale and alpha,
+     * the reveal runs on the RenderThread without calling onDraw every frame
+     */
+    public static final int ANIMATION_MODE_RENDER_THREAD = 1;
+
+    /**
+     * items start animating one stagger after another
+     */
+    public static final int STAGGER_LINEAR = 0;
+    /**
+     * most items start early, the gaps between their starts grow towards the last one
+     */
+    public static final int STAGGER_EASE_OUT = 1;
+    /**
+     * items closer to the touch that expanded or collapsed the menu start first, linear without a touch
+     */
+    public static final int STAGGER_RADIAL = 2;
+
+    /**
+     * passes traced only the first time they run *
+     */
+    private static final int FIRST_MEASURE = 0x1;
+    private static final int FIRST_LAYOUT = 0x2;
+    private static final int FIRST_DRAW = 0x4;
+
+    private static volatile FilterMenuTracer globalTracer;
+
     public static final int DURATION = 400;
     private static final int DURATION_BETWEEN_ITEM = 50;
+    /**
+     * items can be touched a bit outside their bounds, by this ratio of their width *
+     */
+    private static final float TOUCH_OFFSET_RATIO = .2f;
+    /**
+     * time constant of the exponential slow down of a ring fling, in seconds *
+     */
+    private static final float FLING_DECAY_SECONDS = .325f;
     /**
      * menu items position start angle*
      */
@@ -52,9 +97,64 @@ public class FilterMenuLayout extends ViewGroup {
      */
     double toAngle;
     Point touchPoint = new Point();
+    /**
+     * scratch point for historical touch samples *
+     */
+    private final Point samplePoint = new Point();
     boolean inChild = false;
     FilterMenu.Item touchedItem;
     boolean isExpand = false;
+    /**
+     * click listener of item buttons reused by {@link #bind(FilterMenu)} *
+     */
+    private OnClickListener itemClickListener;
+    /**
+     * items were inserted, removed or moved since the last layout *
+     */
+    private boolean pendingItemTransition;
+    /**
+     * items were not measured or placed while collapsed, the next expand has to request a layout *
+     */
+    private boolean itemLayoutSkipped;
+    /**
+     * most items shown at once, menus with more items are virtualized, 0 to show all *
+     */
+    private int maxVisibleItems;
+    /**
+     * true while the children are recycled slot buttons showing a window of the menu items *
+     */
+    private boolean virtualized;
+    /**
+     * index of the item in the first slot, its fraction turns the ring part of a slot further *
+     */
+    private float scrollPosition;
+    /**
+     * menu item bound to the first slot button, -1 to rebind all slots *
+     */
+    private int boundFirstItem = -1;
+    /**
+     * centers the slot buttons are laid out at, x at 2 * i and y at 2 * i + 1 *
+     */
+    private float[] slotCenters = new float[0];
+    private boolean slotsPlaced;
+    private float slotArcRadius;
+    private int touchSlop;
+    /**
+     * the touch went down on the ring of a virtualized menu and may turn it *
+     */
+    private boolean rotationCandidate;
+    private boolean rotating;
+    private float rotationDownX, rotationDownY;
+    private double lastTouchAngle;
+    /**
+     * velocity of the finger turning the ring, recycled when the gesture ends *
+     */
+    private VelocityTracker velocityTracker;
+    /**
+     * turns the ring after a fling, created on the first fling *
+     */
+    private ValueAnimator flingAnimator;
+    private float flingFrom, flingTo;
     /**
      * arc radius when menu is collapsed *
      */
@@ -80,6 +180,23 @@ public class FilterMenuLayout extends ViewGroup {
      * the expanded circle bounds*
      */
     private Rect menuBounds;
+    /**
+     * bounds of the circles drawn by the last frame, the next frame invalidates them together with its own *
+     */
+    private final Rect drawnCircleBounds = new Rect();
+    private final Rect dirtyBounds = new Rect();
+    /**
+     * system window insets, the menu items stay out of them *
+     */
+    private final Rect windowInsets = new Rect();
+    /**
+     * radii of the top left, top right, bottom right and bottom left corner of the area items are placed in *
+     */
+    private final int[] cornerRadii = new int[4];
+    /**
+     * areas the menu items stay out of, e.g. display cutouts *
+     */
+    private final List<Rect> exclusionRects = new ArrayList<>();
     /**
      * set the circle position, base on its center , the menu will auto align.You should only set two directions at most.
      */
@@ -93,9 +210,59 @@ public class FilterMenuLayout extends ViewGroup {
      */
     private boolean centerVertical;
     /**
-     * all intersect points *
+     * arc math, reused across layout passes *
+     */
+    private final ArcGeometry geometry = new ArcGeometry();
+    /**
+     * scratch buffer for menu item coordinates *
+     */
+    private final float[] itemCoords = new float[2];
+    /**
+     * inputs of the last layout pass, to skip placing items when nothing changed *
+     */
+    private final MenuLayoutCache layoutCache = new MenuLayoutCache();
+    /**
+     * finds the item under a touch point without scanning all items *
+     */
+    private final MenuHitIndex hitIndex = new MenuHitIndex();
+    /**
+     * largest edge the icons of the measured item buttons are shown at, 0 before items were measured *
+     */
+    private int itemIconSize;
+    private int animationMode = ANIMATION_MODE_DRAW;
+    /**
+     * layers used by {@link #ANIMATION_MODE_RENDER_THREAD}, the first children so they draw behind the menu items *
+     */
+    private RevealLayerView discLayer;
+    private RevealLayerView collapsedCoreLayer;
+    private RevealLayerView expandedCoreLayer;
+    /**
+     * count of leading children which are not menu items *
      */
-    private List<Point> intersectPoints = new ArrayList<>();
+    private int decorCount;
+    private FilterMenuTracer tracer;
+    /**
+     * first passes which already ran, see {@link #FIRST_MEASURE} *
+     */
+    private int finishedFirstPasses;
+    /**
+     * null unless enabled by {@link #setIdleStateCacheEnabled(boolean)} *
+     */
+    private IdleStateCache idleStateCache;
+    private OnFrameStatsListener frameStatsListener;
+    /**
+     * only created when a {@link #frameStatsListener} is set *
+     */
+    private FrameStatsCollector frameStatsCollector;
+    /**
+     * expected time between frames of the display, read when attached so taps don't look it up. 0 if unknown *
+     */
+    private long frameIntervalNanos;
+    private boolean prefetchEnabled;
+    /**
+     * created on the first prefetch of a lazy menu *
+     */
+    private ItemPrefetcher prefetcher;
     /**
      * expand progress *
      */
@@ -110,9 +277,34 @@ public class FilterMenuLayout extends ViewGroup {
      * TODO: add more drawable
      */
     private FilterMenuDrawable drawable;
-    private ObjectAnimator circleAnimator;
-    private ValueAnimator colorAnimator;
+    /**
+     * animates the circle, its color and the items of expand and collapse *
+     */
+    private MenuTimeline timeline;
+    private StaggerScheduler scheduler;
+    /**
+     * entrance progress an item needs before it takes touches *
+     */
+    private float itemHitThreshold;
+    /**
+     * angle of the touch about to expand or collapse the menu, NaN if it's not started by a touch *
+     */
+    private double touchOriginAngle = Double.NaN;
+    /**
+     * the touch started on an item that can't be touched yet, the gesture is ignored *
+     */
+    private boolean ignoringTouch;
     private FilterMenu menu;
+    /**
+     * menu whose item views are the children, kept after {@link #unbind()} so {@link #bind(FilterMenu)}
+     * can take its buttons over *
+     */
+    private FilterMenu itemViewOwner;
+    /**
+     * expanded state was restored before there was a menu, e.g. one built by
+     * {@link FilterMenu.Builder#buildAsync(java.util.concurrent.Executor, FilterMenu.Builder.Callback)} *
+     */
+    private boolean pendingRestoredExpand;
 
     public FilterMenuLayout(Context context) {
         super(context);
@@ -135,77 +327,6 @@ public class FilterMenuLayout extends ViewGroup {
         init(context, attrs);
     }
 
-    /**
-     * calculate arc angle between point a and point b
-     *
-     * @param center
-     * @param a
-     * @param b
-     * @param area
-     * @param radius
-     * @return
-     */
-    private static double arcAngle(Point center, Point a, Point b, Rect area, int radius) {
-        double angle = threePointsAngle(center, a, b);
-        Point innerPoint = findMidnormalPoint(center, a, b, area, radius);
-        Point midInsectPoint = new Point((a.x + b.x) / 2, (a.y + b.y) / 2);
-        double distance = pointsDistance(midInsectPoint, innerPoint);
-        if (distance > radius) {
-            return 360 - angle;
-        }
-        return angle;
-    }
-
-    /**
-     * find the middle point of two intersect points in circle,only one point will be correct
-     *
-     * @param center
-     * @param a
-     * @param b
-     * @param area
-     * @param radius
-     * @return
-     */
-    private static Point findMidnormalPoint(Point center, Point a, Point b, Rect area, int radius) {
-        if (a.y == b.y) {
-            //top
-            if (a.y < center.y) {
-                return new Point((a.x + b.x) / 2, center.y + radius);
-            }
-            //bottom
-            return new Point((a.x + b.x) / 2, center.y - radius);
-        }
-        if (a.x == b.x) {
-            //left
-            if (a.x < center.x) {
-                return new Point(center.x + radius, (a.y + b.y) / 2);
-            }
-            //right
-            return new Point(center.x - radius, (a.y + b.y) / 2);
-        }
-        //slope of line ab
-        double abSlope = (a.y - b.y) / (a.x - b.x * 1.0);
-        //slope of midnormal
-        double midnormalSlope = -1.0 / abSlope;
-
-        double radian = Math.tan(midnormalSlope);
-        int dy = (int) (radius * Math.sin(radian));
-        int dx = (int) (radius * Math.cos(radian));
-        Point point = new Point(center.x + dx, center.y + dy);
-        if (!inArea(point, area, 0)) {
-            point = new Point(center.x - dx, center.y - dy);
-        }
-        return point;
-    }
-
-    private static double pointAngleOnCircle(Point center, Point point, Point coor) {
-        double angle = threePointsAngle(center, point, coor);
-        if (point.y < center.y) {
-            angle = 360 - angle;
-        }
-        return angle;
-    }
-
     /**
      * judge if an point in the area or not
      *
@@ -215,26 +336,7 @@ public class FilterMenuLayout extends ViewGroup {
      * @return
      */
     public static boolean inArea(Point point, Rect area, float offsetRatio) {
-        int offset = (int) (area.width() * offsetRatio);
-        return point.x >= area.left - offset && point.x <= area.right + offset &&
-                point.y >= area.top - offset && point.y <= area.bottom + offset;
-    }
-
-    /**
-     * calculate the  point a's angle of rectangle consist of point a,point b, point c;
-     *
-     * @param vertex
-     * @param A
-     * @param B
-     * @return
-     */
-    private static double threePointsAngle(Point vertex, Point A, Point B) {
-        double b = pointsDistance(vertex, A);
-        double c = pointsDistance(A, B);
-        double a = pointsDistance(B, vertex);
-
-        return Math.toDegrees(Math.acos((a * a + b * b - c * c) / (2 * a * b)));
-
+        return ArcGeometry.inArea(point.x, point.y, area.left, area.top, area.right, area.bottom, offsetRatio);
     }
 
     /**
@@ -245,13 +347,15 @@ public class FilterMenuLayout extends ViewGroup {
      * @return
      */
     private static double pointsDistance(Point a, Point b) {
-        int dx = b.x - a.x;
-        int dy = b.y - a.y;
-        return Math.sqrt(dx * dx + dy * dy);
+        return ArcGeometry.pointsDistance(a.x, a.y, b.x, b.y);
     }
 
     private void init(Context ctx, AttributeSet attrs) {
         float density = getResources().getDisplayMetrics().density;
+        FilterMenuTracer tracer = globalTracer;
+        if (tracer != null) {
+            tracer.beginSection(FilterMenuTracer.SECTION_INIT);
+        }
         TypedArray ta = ctx.obtainStyledAttributes(attrs, R.styleable.FilterMenuLayout);
         int defaultCollapsedRadius = (int) (65 / 2.f * density + 0.5);
         int defaultExpandedRadius = (int) (65 * 2 * density + 0.5);
@@ -268,7 +372,21 @@ public class FilterMenuLayout extends ViewGroup {
 
         primaryColor = ta.getColor(R.styleable.FilterMenuLayout_fm_primaryColor, getResources().getColor(android.R.color.holo_blue_bright));
         primaryDarkColor = ta.getColor(R.styleable.FilterMenuLayout_fm_primaryDarkColor, getResources().getColor(android.R.color.holo_blue_dark));
+        int mode = ta.getInt(R.styleable.FilterMenuLayout_fm_animationMode, ANIMATION_MODE_DRAW);
+        boolean idleStateCacheEnabled = ta.getBoolean(R.styleable.FilterMenuLayout_fm_idleStateCache, false);
+        prefetchEnabled = ta.getBoolean(R.styleable.FilterMenuLayout_fm_prefetch, true);
+        maxVisibleItems = ta.getInt(R.styleable.FilterMenuLayout_fm_maxVisibleItems, 0);
+        scheduler = new StaggerScheduler(
+                ta.getInt(R.styleable.FilterMenuLayout_fm_itemDuration, DURATION),
+                ta.getInt(R.styleable.FilterMenuLayout_fm_itemStagger, DURATION_BETWEEN_ITEM));
+        scheduler.setMaxDuration(ta.getInt(R.styleable.FilterMenuLayout_fm_maxAnimationDuration, 0));
+        scheduler.setCurve(ta.getInt(R.styleable.FilterMenuLayout_fm_staggerCurve, STAGGER_LINEAR));
+        itemHitThreshold = ta.getFloat(R.styleable.FilterMenuLayout_fm_itemHitThreshold, 0f);
+        touchSlop = ViewConfiguration.get(ctx).getScaledTouchSlop();
         ta.recycle();
+        if (tracer != null) {
+            tracer.endSection();
+        }
 
         if (!centerHorizontal) {
             centerLeft = centerLeft != 0 && centerLeft < collapsedRadius ? collapsedRadius : centerLeft;
@@ -304,26 +422,50 @@ public class FilterMenuLayout extends ViewGroup {
             outlineProvider = new OvalOutline();
         }
         drawable = new FilterMenuDrawable(ctx, Color.WHITE, collapsedRadius);
+        drawable.setCallback(this);
         menuBounds = new Rect();
-        circleAnimator = ObjectAnimator.ofFloat(this, "expandProgress", 0, 0);
-        circleAnimator.setInterpolator(new OvershootInterpolator());
-        circleAnimator.setDuration(DURATION);
+        timeline = new MenuTimeline(new MenuTimeline.Host() {
+            @Override
+            public int getItemCount() {
+                return FilterMenuLayout.this.getItemCount();
+            }
+
+            @Override
+            public View getItemView(int index) {
+                return FilterMenuLayout.this.getItemView(index);
+            }
+
+            @Override
+            public void setExpandProgress(float progress) {
+                if (animationMode == ANIMATION_MODE_RENDER_THREAD && timeline.isRunning()) {
+                    // the reveal layers animate on the RenderThread, only the outline and the touch radius follow
+                    followExpandProgress(progress);
+                } else {
+                    FilterMenuLayout.this.setExpandProgress(progress);
+                }
+            }
+
+            @Override
+            public void setCoreColor(int color) {
+                FilterMenuLayout.this.setCoreColor(color);
+            }
 
-        colorAnimator = ValueAnimator.ofObject(new ArgbEvaluator(), primaryColor, primaryDarkColor);
-        colorAnimator.setDuration(DURATION);
-        colorAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
             @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                primaryDarkPaint.setColor((Integer) animation.getAnimatedValue());
+            public void onTimelineFinished(boolean expanded) {
+                FilterMenuLayout.this.onTimelineFinished(expanded);
             }
-        });
+        }, scheduler);
+        timeline.setColors(primaryColor, primaryDarkColor);
+
         setSoundEffectsEnabled(true);
+        setAnimationMode(mode);
+        setIdleStateCacheEnabled(idleStateCacheEnabled);
     }
 
     @Override
     protected void onFinishInflate() {
         super.onFinishInflate();
-        if (getChildCount() > 0) {
+        if (getItemCount() > 0) {
             throw new IllegalStateException("should not add any child view to FilterMenuLayout ");
         }
     }
@@ -333,14 +475,47 @@ public class FilterMenuLayout extends ViewGroup {
     }
 
     public void setExpandProgress(float progress) {
-        this.expandProgress = progress;
+        followExpandProgress(progress);
+        if (animationMode == ANIMATION_MODE_RENDER_THREAD) {
+            syncRevealLayers(progress);
+            return;
+        }
         primaryPaint.setAlpha(Math.min(255, (int) (progress * 255)));
+        drawable.setExpandProgress(progress);
+        invalidateCircles();
+    }
 
+    /**
+     * update the progress and what reads it, without drawing anything
+     */
+    private void followExpandProgress(float progress) {
+        this.expandProgress = progress;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             invalidateOutline();
         }
-        drawable.setExpandProgress(progress);
-        invalidate();
+    }
+
+    /**
+     * invalidate only where the circles were and are drawn, instead of the whole layout which usually
+     * fills the screen. Hardware rendering redraws the display list anyway, this saves raster work on
+     * software rendered layers and devices
+     */
+    private void invalidateCircles() {
+        float radius = Math.max(collapsedRadius + (expandedRadius - collapsedRadius) * expandProgress,
+                collapsedRadius + collapsedRadius * .2f * expandProgress);
+        // one more pixel for the anti aliased edge
+        int half = (int) Math.ceil(radius) + 1;
+        dirtyBounds.set(center.x - half, center.y - half, center.x + half, center.y + half);
+        if (drawnCircleBounds.isEmpty()) {
+            drawnCircleBounds.set(dirtyBounds);
+            invalidate();
+            return;
+        }
+        // the circle may have shrunk, the pixels it covered last frame must be redrawn too
+        int left = dirtyBounds.left, top = dirtyBounds.top, right = dirtyBounds.right, bottom = dirtyBounds.bottom;
+        dirtyBounds.union(drawnCircleBounds);
+        drawnCircleBounds.set(left, top, right, bottom);
+        invalidate(dirtyBounds);
     }
 
     @Override
@@ -349,33 +524,72 @@ public class FilterMenuLayout extends ViewGroup {
     }
 
     void collapse(boolean animate) {
-        state = STATE_COLLAPSE;
-        for (int i = 0; i < getChildCount(); i++) {
-            getChildAt(i).setVisibility(View.GONE);
+        FilterMenuTracer tracer = getTracer();
+        if (tracer != null) {
+            tracer.beginSection(FilterMenuTracer.SECTION_COLLAPSE);
+        }
+        if (state == STATE_COLLAPSE && animate) {
+            // already collapsed or collapsing, nothing to restart
+            if (tracer != null) {
+                tracer.endSection();
+            }
+            return;
         }
+        state = STATE_COLLAPSE;
+        stopFling();
         invalidate();
         if (animate) {
+            // the items stay visible until the animation hides them, see onTimelineFinished
             startCollapseAnimation();
+        } else {
+            timeline.jumpTo(false);
+            hideItems();
         }
         if (menu != null && menu.getListener() != null) {
             menu.getListener().onMenuCollapse();
         }
+        if (tracer != null) {
+            tracer.endSection();
+        }
     }
 
     void expand(boolean animate) {
+        FilterMenuTracer tracer = getTracer();
+        if (tracer != null) {
+            tracer.beginSection(FilterMenuTracer.SECTION_EXPAND);
+        }
+        if (state == STATE_EXPAND && animate) {
+            if (tracer != null) {
+                tracer.endSection();
+            }
+            return;
+        }
+        if (menu != null && !virtualized) {
+            menu.materialize();
+        }
         state = STATE_EXPAND;
-        for (int i = 0; i < getChildCount(); i++) {
-            getChildAt(i).setVisibility(View.VISIBLE);
+        for (int i = 0; i < getItemCount(); i++) {
+            getItemView(i).setVisibility(View.VISIBLE);
+        }
+        if (virtualized) {
+            applyScrollOffset();
+        }
+        if (itemLayoutSkipped) {
+            itemLayoutSkipped = false;
+            requestLayout();
         }
         invalidate();
         if (animate) {
             startExpandAnimation();
         } else {
-            setItemsAlpha(1f);
+            timeline.jumpTo(true);
         }
         if (menu != null && menu.getListener() != null) {
             menu.getListener().onMenuExpand();
         }
+        if (tracer != null) {
+            tracer.endSection();
+        }
     }
 
     void toggle(boolean animate) {
@@ -388,6 +602,7 @@ public class FilterMenuLayout extends ViewGroup {
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        boolean traced = beginFirstPass(FIRST_MEASURE, FilterMenuTracer.SECTION_FIRST_MEASURE);
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
 
         int widthMode = MeasureSpec.getMode(widthMeasureSpec);
@@ -398,7 +613,23 @@ public class FilterMenuLayout extends ViewGroup {
 
 
         setMeasuredDimension(width, height);
-        measureChildren(widthMeasureSpec, heightMeasureSpec);
+        for (int i = 0; i < decorCount; i++) {
+            measureChild(getChildAt(i), widthMeasureSpec, heightMeasureSpec);
+        }
+        // collapsed items are invisible, they are measured and placed when the menu expands
+        if (!itemsHidden()) {
+            for (int i = 0; i < getItemCount(); i++) {
+                View child = getItemView(i);
+                if (child.getVisibility() != GONE) {
+                    measureChild(child, widthMeasureSpec, heightMeasureSpec);
+                }
+            }
+        } else if (getItemCount() > 0) {
+            itemLayoutSkipped = true;
+        }
+        if (traced) {
+            getTracer().endSection();
+        }
 
     }
 
@@ -409,21 +640,62 @@ public class FilterMenuLayout extends ViewGroup {
 
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        boolean traced = beginFirstPass(FIRST_LAYOUT, FilterMenuTracer.SECTION_FIRST_LAYOUT);
+        layoutChildren(l, t);
+        if (traced) {
+            getTracer().endSection();
+        }
+    }
 
-        if (getChildCount() == 0) {
+    private void layoutChildren(int l, int t) {
+        for (int i = 0; i < decorCount; i++) {
+            View layer = getChildAt(i);
+            int halfWidth = layer.getMeasuredWidth() / 2;
+            int halfHeight = layer.getMeasuredHeight() / 2;
+            layer.layout(center.x - halfWidth, center.y - halfHeight, center.x + halfWidth, center.y + halfHeight);
+        }
+        if (getItemCount() == 0) {
+            return;
+        }
+        if (itemsHidden()) {
+            itemLayoutSkipped = true;
+            pendingItemTransition = false;
+            return;
+        }
+        if (virtualized) {
+            layoutSlots(l, t);
             return;
         }
-        calculateMenuItemPosition();
-        for (int i = 0; i < getChildCount(); i++) {
-            FilterMenu.Item item = (FilterMenu.Item) getChildAt(i).getTag();
+        if (!layoutCache.lookup(this, center.x, center.y, collapsedRadius, expandedRadius)) {
+            int changedFrom = layoutCache.getChangedFrom() - decorCount;
+            if (layoutCache.isFullMiss() || changedFrom < 0) {
+                updateMenuBounds(getWidth(), getHeight());
+                calculateMenuItemPosition(0, getItemCount());
+            } else {
+                // only some items were moved, replaced or resized, the other slots keep their positions
+                calculateMenuItemPosition(changedFrom, layoutCache.getChangedTo() - decorCount);
+            }
+        }
+        boolean animateChanges = pendingItemTransition && state == STATE_EXPAND;
+        pendingItemTransition = false;
+        for (int i = 0; i < getItemCount(); i++) {
+            FilterMenu.Item item = getItem(i);
+            Rect bounds = item.getBounds();
+            boolean placed = !bounds.isEmpty();
+            int oldLeft = bounds.left;
+            int oldTop = bounds.top;
             item.setBounds(
                     l + item.getX(),
                     t + item.getY(),
                     l + item.getX() + item.getView().getMeasuredWidth(),
                     t + item.getY() + item.getView().getMeasuredHeight()
             );
-            Rect bounds = item.getBounds();
+            int offset = (int) (bounds.width() * TOUCH_OFFSET_RATIO);
+            item.getHitBounds().set(bounds.left - offset, bounds.top - offset, bounds.right + offset, bounds.bottom + offset);
             item.getView().layout(bounds.left, bounds.top, bounds.right, bounds.bottom);
+            if (animateChanges) {
+                animateItemChange(item.getView(), placed, oldLeft - bounds.left, oldTop - bounds.top);
+            }
         }
 
     }
@@ -432,8 +704,21 @@ public class FilterMenuLayout extends ViewGroup {
     public boolean onTouchEvent(MotionEvent event) {
         touchPoint.set((int) event.getX(), (int) event.getY());
         int action = event.getActionMasked();
+        if (ignoringTouch) {
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                ignoringTouch = false;
+            }
+            return true;
+        }
+        if (action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_UP) {
+            // the radial stagger starts from where this touch expands or collapses the menu
+            double distance = pointsDistance(touchPoint, center);
+            touchOriginAngle = distance > touchSlop
+                    ? Math.toDegrees(Math.atan2(touchPoint.y - center.y, touchPoint.x - center.x)) : Double.NaN;
+        }
         switch (action) {
             case MotionEvent.ACTION_DOWN: {
+                startRotationTracking(event);
                 isExpand = false;
                 double distance = pointsDistance(touchPoint, center);
                 if (distance > (collapsedRadius + (expandedRadius - collapsedRadius) * expandProgress)) {
@@ -451,35 +736,31 @@ public class FilterMenuLayout extends ViewGroup {
                 }
             }
             case MotionEvent.ACTION_MOVE: {
-                if (inChild) {
-                    if (!inArea(touchPoint, touchedItem.getBounds(), .2f)) {
-                        touchedItem.getView().setPressed(false);
-                        inChild = false;
-                    }
-                } else {
-                    for (int i = 0; i < getChildCount(); i++) {
-                        View child = getChildAt(i);
-                        FilterMenu.Item item = (FilterMenu.Item) getChildAt(i).getTag();
-                        if (inArea(touchPoint, item.getBounds(), .2f)) {
-                            touchedItem = item;
-                            inChild = true;
-                            child.dispatchTouchEvent(event);
-                            child.setPressed(true);
-                            break;
-                        }
-                    }
+                if (trackRotation(event)) {
+                    return true;
                 }
+                onMoveBatch(event);
+                break;
+            }
+            case MotionEvent.ACTION_CANCEL: {
+                endRotationTracking(event, true);
                 break;
             }
             case MotionEvent.ACTION_UP: {
+                if (rotating) {
+                    endRotationTracking(event, false);
+                    return true;
+                }
+                endRotationTracking(event, false);
                 if (inChild) {
+                    View touchedView = viewOf(touchedItem);
                     if (menu != null) {
                         if (menu.getListener() != null) {
                             collapse(true);
-                            menu.getListener().onMenuItemClick(touchedItem.getView(), touchedItem.getPosition());
+                            menu.getListener().onMenuItemClick(touchedView, touchedItem.getPosition());
                         }
                     }
-                    touchedItem.getView().setPressed(false);
+                    touchedView.setPressed(false);
                     inChild = false;
                 }
                 if (!isExpand) {
@@ -497,270 +778,1349 @@ public class FilterMenuLayout extends ViewGroup {
         return super.onTouchEvent(event);
     }
 
-    @Override
-    public boolean onInterceptTouchEvent(MotionEvent ev) {
-//        for (int i = 0; i < getChildCount(); i++) {
-//            View child = getChildAt(i);
-//            FilterMenu.Item item = (FilterMenu.Item) getChildAt(i).getTag();
-//            if(inArea(touchPoint, item.getBounds())){
-//                return false;
-//            }
-//        }
-        return super.onInterceptTouchEvent(ev);
+    /**
+     * walk the historical samples batched into the move event and the current one, then update the pressed
+     * state once for the item hovered at the end of the batch
+     */
+    private void onMoveBatch(MotionEvent event) {
+        FilterMenu.Item hovered = inChild ? touchedItem : null;
+        int historySize = event.getHistorySize();
+        for (int i = 0; i <= historySize; i++) {
+            if (i < historySize) {
+                samplePoint.set((int) event.getHistoricalX(i), (int) event.getHistoricalY(i));
+            } else {
+                samplePoint.set(touchPoint.x, touchPoint.y);
+            }
+            // keep the hovered item until the finger leaves its padded bounds
+            if (hovered == null || !inArea(samplePoint, hovered.getHitBounds(), 0)) {
+                hovered = findItemAt(samplePoint);
+            }
+        }
+        FilterMenu.Item pressed = inChild ? touchedItem : null;
+        if (hovered == pressed) {
+            return;
+        }
+        if (pressed != null) {
+            viewOf(pressed).setPressed(false);
+        }
+        if (hovered != null) {
+            View child = viewOf(hovered);
+            child.dispatchTouchEvent(event);
+            child.setPressed(true);
+        }
+        touchedItem = hovered;
+        inChild = hovered != null;
     }
 
-    @Override
-    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
-        Log.d(TAG, "onSizeChanged: " + w + ", " + h);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            setOutlineProvider(outlineProvider);
+    /**
+     * @return the item whose hit bounds contain the point, or null
+     */
+    private FilterMenu.Item findItemAt(Point point) {
+        if (virtualized) {
+            return findSlotItemAt(point);
         }
-        int x, y;
-        if (centerHorizontal) {
-            x = w / 2 + centerLeft - centerRight;
-        } else {
-            x = centerLeft != 0 ? centerLeft : w - centerRight;
+        int slot = hitIndex.findSlot(point.x, point.y);
+        if (slot < 0) {
+            return null;
         }
-        if (centerVertical) {
-            y = h / 2 + centerTop - centerBottom;
-        } else {
-            y = centerTop != 0 ? centerTop : h - centerBottom;
+        // the slot itself first, then its neighbours, padded bounds can cross slot borders
+        FilterMenu.Item item = itemHitAt(slot, point);
+        if (item == null) {
+            item = itemHitAt(slot - 1, point);
         }
-        center.set(x, y);
-
-        int left = Math.max(getPaddingLeft(), center.x - expandedRadius);
-        int top = Math.max(getPaddingTop(), center.y - expandedRadius);
-        int right = Math.min(w - getPaddingRight(), center.x + expandedRadius);
-        int bottom = Math.min(h - getPaddingBottom(), center.y + expandedRadius);
-
-        menuBounds.set(left, top, right, bottom);
-
-        calculateIntersectPoints();
-        drawable.setBounds(center.x - drawable.getIntrinsicWidth() / 2,
-                center.y - drawable.getIntrinsicHeight() / 2,
-                center.x + drawable.getIntrinsicWidth() / 2,
-                center.y + drawable.getIntrinsicHeight() / 2
-        );
-
+        if (item == null) {
+            item = itemHitAt(slot + 1, point);
+        }
+        return item;
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-        if (expandProgress > 0f) {
-            canvas.drawCircle(center.x, center.y, collapsedRadius + (expandedRadius - collapsedRadius) * expandProgress, primaryPaint);
+    private FilterMenu.Item itemHitAt(int index, Point point) {
+        if (index < 0 || index >= getItemCount() || !isItemInteractive(index)) {
+            return null;
         }
-        canvas.drawCircle(center.x, center.y, collapsedRadius + (collapsedRadius * .2f * expandProgress), primaryDarkPaint);
-        drawable.draw(canvas);
+        FilterMenu.Item item = getItem(index);
+        return inArea(point, item.getHitBounds(), 0) ? item : null;
+    }
+
+    /**
+     * the slot buttons of a virtualized menu are few, test each at its translated position
+     */
+    private FilterMenu.Item findSlotItemAt(Point point) {
+        for (int i = 0; i < getItemCount(); i++) {
+            View slot = getItemView(i);
+            if (slot.getVisibility() != VISIBLE || slot.getTag() == null || !isItemInteractive(i)) {
+                continue;
+            }
+            int offset = (int) (slot.getWidth() * TOUCH_OFFSET_RATIO);
+            float left = slot.getLeft() + slot.getTranslationX();
+            float top = slot.getTop() + slot.getTranslationY();
+            if (point.x >= left - offset && point.x <= left + slot.getWidth() + offset
+                    && point.y >= top - offset && point.y <= top + slot.getHeight() + offset) {
+                return (FilterMenu.Item) slot.getTag();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the child showing the item, the slot button bound to it while virtualized
+     */
+    private View viewOf(FilterMenu.Item item) {
+        if (virtualized) {
+            for (int i = 0; i < getItemCount(); i++) {
+                if (getItemView(i).getTag() == item) {
+                    return getItemView(i);
+                }
+            }
+        }
+        return item.getView();
+    }
+
+    private void startRotationTracking(MotionEvent event) {
+        rotating = false;
+        if (!virtualized || state != STATE_EXPAND) {
+            rotationCandidate = false;
+            return;
+        }
+        // a touch catches the turning ring
+        stopFling();
+        double distance = ArcGeometry.pointsDistance(center.x, center.y, (int) event.getX(), (int) event.getY());
+        rotationCandidate = distance > collapsedRadius && distance <= expandedRadius;
+        rotationDownX = event.getX();
+        rotationDownY = event.getY();
+        lastTouchAngle = touchAngle(event.getX(), event.getY());
+        if (rotationCandidate) {
+            if (velocityTracker == null) {
+                velocityTracker = VelocityTracker.obtain();
+            } else {
+                velocityTracker.clear();
+            }
+            velocityTracker.addMovement(event);
+        }
+    }
+
+    /**
+     * the finger left the ring, fling it with the finger's angular velocity if it was turning
+     */
+    private void endRotationTracking(MotionEvent event, boolean canceled) {
+        if (rotating && !canceled && velocityTracker != null) {
+            velocityTracker.addMovement(event);
+            velocityTracker.computeCurrentVelocity(1000);
+            float rx = event.getX() - center.x;
+            float ry = event.getY() - center.y;
+            double radiusSquare = rx * rx + ry * ry;
+            double sweep = toAngle - fromAngle;
+            if (radiusSquare > 0 && sweep > 0) {
+                // angular velocity from the tangential part of the finger velocity
+                double degreesPerSecond = Math.toDegrees(
+                        (rx * velocityTracker.getYVelocity() - ry * velocityTracker.getXVelocity()) / radiusSquare);
+                fling((float) (-degreesPerSecond * maxVisibleItems / sweep));
+            }
+        }
+        rotating = false;
+        rotationCandidate = false;
+        if (velocityTracker != null) {
+            velocityTracker.recycle();
+            velocityTracker = null;
+        }
+    }
+
+    /**
+     * turn the ring of a virtualized menu once the finger moved past the touch slop on it
+     *
+     * @return true if the move turned the ring
+     */
+    private boolean trackRotation(MotionEvent event) {
+        if (velocityTracker != null) {
+            velocityTracker.addMovement(event);
+        }
+        if (!rotating) {
+            if (!rotationCandidate || Math.hypot(event.getX() - rotationDownX, event.getY() - rotationDownY) <= touchSlop) {
+                return false;
+            }
+            rotating = true;
+            lastTouchAngle = touchAngle(event.getX(), event.getY());
+            if (inChild) {
+                viewOf(touchedItem).setPressed(false);
+                inChild = false;
+                touchedItem = null;
+            }
+            if (getParent() != null) {
+                getParent().requestDisallowInterceptTouchEvent(true);
+            }
+            return true;
+        }
+        double angle = touchAngle(event.getX(), event.getY());
+        double delta = angle - lastTouchAngle;
+        if (delta > 180) {
+            delta -= 360;
+        } else if (delta < -180) {
+            delta += 360;
+        }
+        lastTouchAngle = angle;
+        double sweep = toAngle - fromAngle;
+        if (sweep > 0) {
+            // turning the ring by one slot angle scrolls by one item
+            setScrollPosition(scrollPosition - (float) (delta * maxVisibleItems / sweep));
+        }
+        return true;
+    }
+
+    private double touchAngle(float x, float y) {
+        return Math.toDegrees(Math.atan2(y - center.y, x - center.x));
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        if (state != STATE_EXPAND && ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            // items still fading out can't be clicked, a touch on the circle expands it again
+            return true;
+        }
+        if (ev.getActionMasked() == MotionEvent.ACTION_DOWN && timeline.isRunning()
+                && hitsEnteringItem((int) ev.getX(), (int) ev.getY())) {
+            ignoringTouch = true;
+            return true;
+        }
+        if (virtualized) {
+            switch (ev.getActionMasked()) {
+                case MotionEvent.ACTION_DOWN:
+                    startRotationTracking(ev);
+                    break;
+                case MotionEvent.ACTION_MOVE:
+                    if (trackRotation(ev)) {
+                        return true;
+                    }
+                    break;
+                case MotionEvent.ACTION_UP:
+                case MotionEvent.ACTION_CANCEL:
+                    endRotationTracking(ev, true);
+                    break;
+            }
+        }
+//        for (int i = 0; i < getChildCount(); i++) {
+//            View child = getChildAt(i);
+//            FilterMenu.Item item = (FilterMenu.Item) getChildAt(i).getTag();
+//            if(inArea(touchPoint, item.getBounds())){
+//                return false;
+//            }
+//        }
+        return super.onInterceptTouchEvent(ev);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        Log.d(TAG, "onSizeChanged: " + w + ", " + h);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            setOutlineProvider(outlineProvider);
+        }
+        updateMenuBounds(w, h);
+    }
+
+    /**
+     * calculate the circle center and the area menu items can be placed in
+     */
+    private void updateMenuBounds(int w, int h) {
+        int x, y;
+        if (centerHorizontal) {
+            x = w / 2 + centerLeft - centerRight;
+        } else {
+            x = centerLeft != 0 ? centerLeft : w - centerRight;
+        }
+        if (centerVertical) {
+            y = h / 2 + centerTop - centerBottom;
+        } else {
+            y = centerTop != 0 ? centerTop : h - centerBottom;
+        }
+        if (center.x != x || center.y != y) {
+            // the circles move, the next frame redraws the whole layout
+            drawnCircleBounds.setEmpty();
+        }
+        center.set(x, y);
+
+        int left = Math.max(Math.max(getPaddingLeft(), windowInsets.left), center.x - expandedRadius);
+        int top = Math.max(Math.max(getPaddingTop(), windowInsets.top), center.y - expandedRadius);
+        int right = Math.min(w - Math.max(getPaddingRight(), windowInsets.right), center.x + expandedRadius);
+        int bottom = Math.min(h - Math.max(getPaddingBottom(), windowInsets.bottom), center.y + expandedRadius);
+
+        menuBounds.set(left, top, right, bottom);
+
+        clipArc();
+        drawable.setBounds(center.x - drawable.getIntrinsicWidth() / 2,
+                center.y - drawable.getIntrinsicHeight() / 2,
+                center.x + drawable.getIntrinsicWidth() / 2,
+                center.y + drawable.getIntrinsicHeight() / 2
+        );
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        boolean traced = beginFirstPass(FIRST_DRAW, FilterMenuTracer.SECTION_FIRST_DRAW);
+        super.onDraw(canvas);
+        if (animationMode != ANIMATION_MODE_RENDER_THREAD && !drawIdleState(canvas)) {
+            drawCircles(canvas);
+        }
+        if (traced) {
+            getTracer().endSection();
+        }
+    }
+
+    private void drawCircles(Canvas canvas) {
+        if (expandProgress > 0f) {
+            canvas.drawCircle(center.x, center.y, collapsedRadius + (expandedRadius - collapsedRadius) * expandProgress, primaryPaint);
+        }
+        canvas.drawCircle(center.x, center.y, collapsedRadius + (collapsedRadius * .2f * expandProgress), primaryDarkPaint);
+        drawable.draw(canvas);
+    }
+
+    /**
+     * blit the cached bitmap of the collapsed or expanded state, rendering it first if needed
+     *
+     * @return false if the cache is disabled or the menu is animating
+     */
+    private boolean drawIdleState(Canvas canvas) {
+        if (idleStateCache == null || timeline.isRunning()
+                || (expandProgress != 0f && expandProgress != 1f)) {
+            return false;
+        }
+        boolean isExpanded = expandProgress == 1f;
+        int coreColor = primaryDarkPaint.getColor();
+        float density = getResources().getDisplayMetrics().density;
+        Bitmap bitmap = idleStateCache.get(isExpanded, collapsedRadius, expandedRadius, primaryColor, coreColor, density);
+        int half = isExpanded ? Math.max(expandedRadius, (int) Math.ceil(collapsedRadius * 1.2f)) : collapsedRadius;
+        if (bitmap == null) {
+            if (half <= 0) {
+                return false;
+            }
+            bitmap = Bitmap.createBitmap(half * 2, half * 2, Bitmap.Config.ARGB_8888);
+            Canvas bitmapCanvas = new Canvas(bitmap);
+            bitmapCanvas.translate(half - center.x, half - center.y);
+            drawCircles(bitmapCanvas);
+            idleStateCache.put(isExpanded, bitmap, collapsedRadius, expandedRadius, primaryColor, coreColor, density);
+        }
+        canvas.drawBitmap(bitmap, center.x - half, center.y - half, null);
+        return true;
+    }
+
+    public boolean isIdleStateCacheEnabled() {
+        return idleStateCache != null;
+    }
+
+    /**
+     * @param enabled if true, the circles and icon of the fully collapsed and fully expanded state are
+     *                rendered once into bitmaps, and idle frames only draw the bitmap
+     */
+    public void setIdleStateCacheEnabled(boolean enabled) {
+        if (enabled == isIdleStateCacheEnabled()) {
+            return;
+        }
+        idleStateCache = enabled ? new IdleStateCache() : null;
+        invalidate();
+    }
+
+    public boolean isPrefetchEnabled() {
+        return prefetchEnabled;
+    }
+
+    /**
+     * @param enabled if true, the item views of a lazy menu are created while the main thread is idle once the
+     *                layout is visible, so the first expand does not inflate and decode in its first frame
+     */
+    public void setPrefetchEnabled(boolean enabled) {
+        this.prefetchEnabled = enabled;
+        if (enabled) {
+            schedulePrefetch();
+        } else if (prefetcher != null) {
+            prefetcher.cancel();
+        }
+    }
+
+    private void schedulePrefetch() {
+        if (!prefetchEnabled || virtualized || menu == null || menu.isMaterialized()
+                || getWindowToken() == null || getWindowVisibility() != VISIBLE) {
+            return;
+        }
+        if (prefetcher == null) {
+            prefetcher = new ItemPrefetcher();
+        }
+        prefetcher.start(menu, frameIntervalNanos);
+    }
+
+    private void cancelPrefetch() {
+        if (prefetcher != null) {
+            prefetcher.cancel();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        frameIntervalNanos = getFrameIntervalNanos();
+        schedulePrefetch();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (visibility == VISIBLE) {
+            schedulePrefetch();
+        } else {
+            cancelPrefetch();
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (prefetcher != null) {
+            prefetcher.onFrameDrawn(System.nanoTime());
+        }
+    }
+
+    private void clearIdleStateCache() {
+        if (idleStateCache != null) {
+            idleStateCache.clear();
+        }
+    }
+
+    /**
+     * begin the section if this is the first time the pass runs and a tracer is set
+     *
+     * @return true if the caller must end the section
+     */
+    private boolean beginFirstPass(int pass, String section) {
+        if ((finishedFirstPasses & pass) != 0) {
+            return false;
+        }
+        finishedFirstPasses |= pass;
+        FilterMenuTracer tracer = getTracer();
+        if (tracer == null) {
+            return false;
+        }
+        tracer.beginSection(section);
+        return true;
     }
 
     void startExpandAnimation() {
-        //animate circle
-        circleAnimator.setFloatValues(getExpandProgress(), 1f);
-        circleAnimator.start();
-
-        //animate color
-        colorAnimator.setObjectValues(colorAnimator.getAnimatedValue() == null ? primaryColor : colorAnimator.getAnimatedValue(), primaryDarkColor);
-        colorAnimator.start();
-        //animate menu item
-        int delay = DURATION_BETWEEN_ITEM;
-        for (int i = 0; i < getChildCount(); i++) {
-            getChildAt(i).animate()
-                    .setStartDelay(delay)
-                    .setDuration(DURATION)
-                    .alphaBy(0f)
-                    .scaleXBy(0.5f)
-                    .scaleX(1f)
-                    .scaleYBy(0.5f)
-                    .scaleY(1.f)
-                    .alpha(1f)
-                    .start();
-            delay += DURATION_BETWEEN_ITEM;
+        scheduler.setOrigin(touchOriginAngle);
+        touchOriginAngle = Double.NaN;
+        startFrameStats(STATE_EXPAND);
+        if (animationMode == ANIMATION_MODE_RENDER_THREAD) {
+            startRevealLayerAnimation(1f);
         }
+        //animate circle and menu items, an animating collapse turns around where it is
+        timeline.play(true);
     }
 
     void startCollapseAnimation() {
-        //animate circle
-        circleAnimator.setFloatValues(getExpandProgress(), 0f);
-        circleAnimator.start();
-
-        //animate color
-        colorAnimator.setObjectValues(colorAnimator.getAnimatedValue() == null ? primaryDarkColor : colorAnimator.getAnimatedValue(), primaryColor);
-        colorAnimator.start();
-
-        //animate menu item
-        int delay = DURATION_BETWEEN_ITEM;
-        for (int i = getChildCount() - 1; i >= 0; i--) {
-            getChildAt(i).animate()
-                    .setStartDelay(delay)
-                    .setDuration(DURATION)
-                    .alpha(0)
-                    .scaleX(0)
-                    .scaleY(0)
-                    .start();
-            delay += DURATION_BETWEEN_ITEM;
+        scheduler.setOrigin(touchOriginAngle);
+        touchOriginAngle = Double.NaN;
+        startFrameStats(STATE_COLLAPSE);
+        if (animationMode == ANIMATION_MODE_RENDER_THREAD) {
+            startRevealLayerAnimation(0f);
         }
+        timeline.play(false);
+    }
 
+    /**
+     * the timeline reached the end it played to
+     */
+    void onTimelineFinished(boolean expanded) {
+        if (!expanded && state == STATE_COLLAPSE) {
+            hideItems();
+        }
     }
 
-    void setItemsAlpha(float alpha) {
-        for (int i = 0; i < getChildCount(); i++) {
-            getChildAt(i).setAlpha(alpha);
+    private void hideItems() {
+        for (int i = 0; i < getItemCount(); i++) {
+            getItemView(i).setVisibility(View.GONE);
         }
     }
 
     /**
-     * calculate and set position to menu items
+     * @return whether the item at the index takes touches, it must be far enough into its entrance
+     */
+    private boolean isItemInteractive(int index) {
+        return state == STATE_EXPAND && (!timeline.isRunning() || timeline.getItemProgress(index) >= itemHitThreshold);
+    }
+
+    /**
+     * @return true if the point is on an item view that is still too early in its entrance to take touches
      */
-    private void calculateMenuItemPosition() {
+    private boolean hitsEnteringItem(int x, int y) {
+        for (int i = 0; i < getItemCount(); i++) {
+            View view = getItemView(i);
+            if (view.getVisibility() != VISIBLE || isItemInteractive(i)) {
+                continue;
+            }
+            float left = view.getLeft() + view.getTranslationX();
+            float top = view.getTop() + view.getTranslationY();
+            if (x >= left && x < left + view.getWidth() && y >= top && y < top + view.getHeight()) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        float itemRadius = (expandedRadius + collapsedRadius) / 2, f;
-        RectF area = new RectF(
-                center.x - itemRadius,
-                center.y - itemRadius,
-                center.x + itemRadius,
-                center.y + itemRadius);
-        Path path = new Path();
-        path.addArc(area, (float) fromAngle, (float) (toAngle - fromAngle));
-        PathMeasure measure = new PathMeasure(path, false);
-        float len = measure.getLength();
-        int divisor = getChildCount();
-        float divider = len / divisor;
+    /**
+     * @return true if the menu is collapsed and done animating, its items are hidden and need no layout
+     */
+    private boolean itemsHidden() {
+        return state != STATE_EXPAND && !timeline.isRunning();
+    }
 
-        for (int i = 0; i < getChildCount(); i++) {
-            float[] coords = new float[2];
-            measure.getPosTan(i * divider + divider * .5f, coords, null);
-            FilterMenu.Item item = (FilterMenu.Item) getChildAt(i).getTag();
-            item.setX((int) coords[0] - item.getView().getMeasuredWidth() / 2);
-            item.setY((int) coords[1] - item.getView().getMeasuredHeight() / 2);
+    private void startFrameStats(int state) {
+        if (frameStatsCollector == null) {
+            return;
         }
+        frameStatsCollector.start(state, timeline.getDuration(), frameIntervalNanos);
     }
 
     /**
-     * find all intersect points, and calculate menu items display area;
+     * @return expected time between frames of the display, 0 if unknown. Looks the display up, call it only when
+     * attached
      */
-    private void calculateIntersectPoints() {
-        intersectPoints.clear();
+    private long getFrameIntervalNanos() {
+        float refreshRate = ((WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE))
+                .getDefaultDisplay().getRefreshRate();
+        return refreshRate > 0 ? (long) (1000000000L / refreshRate) : 0;
+    }
 
-        /** order intersect points clockwise **/
-        //left edge
-        if (center.x - menuBounds.left < expandedRadius) {
-            int dy = (int) Math.sqrt(Math.pow(expandedRadius, 2) - Math.pow(center.x - menuBounds.left, 2));
-            if (center.y - dy > menuBounds.top) {
-                intersectPoints.add(new Point(menuBounds.left, center.y - dy));
+    /**
+     * @param listener receives frame timing of every expand and collapse animation, null to stop recording.
+     *                 Needs JELLY_BEAN, on older versions nothing is recorded
+     */
+    public void setOnFrameStatsListener(OnFrameStatsListener listener) {
+        if (frameStatsCollector != null) {
+            frameStatsCollector.cancel();
+            frameStatsCollector = null;
+        }
+        this.frameStatsListener = listener;
+        if (listener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            frameStatsCollector = new FrameStatsCollector(listener);
+        }
+    }
+
+    public OnFrameStatsListener getOnFrameStatsListener() {
+        return frameStatsListener;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (frameStatsCollector != null) {
+            frameStatsCollector.cancel();
+        }
+        // pending frame callbacks would keep the detached layout alive until the animations end
+        if (timeline.isRunning()) {
+            timeline.jumpTo(state == STATE_EXPAND);
+            if (state != STATE_EXPAND) {
+                hideItems();
             }
+        }
+        stopFling();
+        cancelPrefetch();
+        clearIdleStateCache();
+    }
+
+    /**
+     * set the color of the inner circle, without invalidating since it only changes along with the circle
+     */
+    void setCoreColor(int color) {
+        primaryDarkPaint.setColor(color);
+    }
+
+    /**
+     * jump the running or last expand or collapse animation to a play time, e.g. to scrub it
+     *
+     * @param fraction of the whole animation, including the item delays
+     */
+    public void seekAnimation(float fraction) {
+        timeline.seekFraction(fraction);
+    }
+
+    /**
+     * @return whether an expand or collapse animation is running
+     */
+    public boolean isAnimating() {
+        return timeline.isRunning();
+    }
+
+    public int getItemDuration() {
+        return scheduler.getItemDuration();
+    }
+
+    /**
+     * @param millis how long the circle and each item animate, {@link #DURATION} by default
+     */
+    public void setItemDuration(int millis) {
+        scheduler.setItemDuration(millis);
+    }
+
+    public int getItemStagger() {
+        return scheduler.getStagger();
+    }
+
+    /**
+     * @param millis delay between the starts of two items, before {@link #setMaxAnimationDuration(int)} applies
+     */
+    public void setItemStagger(int millis) {
+        scheduler.setStagger(millis);
+    }
+
+    public int getMaxAnimationDuration() {
+        return scheduler.getMaxDuration();
+    }
+
+    /**
+     * @param millis longest an expand or collapse may take however many items there are, the stagger
+     *               shrinks to fit. 0 for no limit
+     */
+    public void setMaxAnimationDuration(int millis) {
+        scheduler.setMaxDuration(millis);
+    }
+
+    public int getStaggerCurve() {
+        return scheduler.getCurve();
+    }
+
+    /**
+     * @param curve {@link #STAGGER_LINEAR}, {@link #STAGGER_EASE_OUT} or {@link #STAGGER_RADIAL}
+     */
+    public void setStaggerCurve(int curve) {
+        scheduler.setCurve(curve);
+    }
+
+    public float getItemHitThreshold() {
+        return itemHitThreshold;
+    }
+
+    /**
+     * @param threshold how far into its entrance animation an item takes touches, from 0 as soon as it starts
+     *                  (default) to 1 once it is done
+     */
+    public void setItemHitThreshold(float threshold) {
+        this.itemHitThreshold = threshold;
+    }
+
+    /**
+     * animate the reveal layers to the progress, only view properties change so no frame calls onDraw
+     */
+    private void startRevealLayerAnimation(float progress) {
+        float discScale = discScale(progress);
+        animateLayer(discLayer)
+                .setInterpolator(SharedRenderResources.OVERSHOOT_INTERPOLATOR)
+                .scaleX(discScale)
+                .scaleY(discScale)
+                .alpha(progress)
+                .start();
+        animateLayer(collapsedCoreLayer)
+                .alpha(1 - progress)
+                .start();
+        float coreScale = coreScale(progress);
+        animateLayer(expandedCoreLayer)
+                .scaleX(coreScale)
+                .scaleY(coreScale)
+                .alpha(progress)
+                .start();
+    }
+
+    private ViewPropertyAnimator animateLayer(View layer) {
+        ViewPropertyAnimator animator = layer.animate()
+                .setStartDelay(0)
+                .setDuration(scheduler.getTrackDuration());
+        // RenderThread animations need LOLLIPOP, before that a hardware layer keeps frames cheap
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                && Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            animator.withLayer();
+        }
+        return animator;
+    }
+
+    /**
+     * set the reveal layers to the progress without animation
+     */
+    private void syncRevealLayers(float progress) {
+        float discScale = discScale(progress);
+        discLayer.animate().cancel();
+        discLayer.setScaleX(discScale);
+        discLayer.setScaleY(discScale);
+        discLayer.setAlpha(Math.min(1f, progress));
+        collapsedCoreLayer.animate().cancel();
+        collapsedCoreLayer.setAlpha(Math.max(0f, 1 - progress));
+        float coreScale = coreScale(progress);
+        expandedCoreLayer.animate().cancel();
+        expandedCoreLayer.setScaleX(coreScale);
+        expandedCoreLayer.setScaleY(coreScale);
+        expandedCoreLayer.setAlpha(Math.min(1f, progress));
+    }
+
+    /**
+     * the disc layer is recorded at expandedRadius
+     */
+    private float discScale(float progress) {
+        return (collapsedRadius + (expandedRadius - collapsedRadius) * progress) / (float) expandedRadius;
+    }
+
+    /**
+     * the expanded core layer is recorded at its full size, 1.2 times collapsedRadius
+     */
+    private float coreScale(float progress) {
+        return (1 + .2f * progress) / 1.2f;
+    }
+
+    private void updateRevealLayers() {
+        if (discLayer == null) {
+            return;
+        }
+        discLayer.setCircle(expandedRadius, primaryColor, collapsedRadius);
+        collapsedCoreLayer.setCircle(collapsedRadius, primaryColor, collapsedRadius);
+        expandedCoreLayer.setCircle((int) (collapsedRadius * 1.2f), primaryDarkColor, collapsedRadius);
+        syncRevealLayers(expandProgress);
+    }
+
+    /**
+     * @param tracer receives sections of every layout without its own tracer, null to stop tracing
+     */
+    public static void setGlobalTracer(FilterMenuTracer tracer) {
+        globalTracer = tracer;
+    }
+
+    public static FilterMenuTracer getGlobalTracer() {
+        return globalTracer;
+    }
+
+    /**
+     * @return the tracer of this layout, or the global tracer if none is set
+     */
+    public FilterMenuTracer getTracer() {
+        return tracer != null ? tracer : globalTracer;
+    }
+
+    /**
+     * @param tracer receives sections of this layout and the menus attached to it, null to use the global tracer
+     */
+    public void setTracer(FilterMenuTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    public int getAnimationMode() {
+        return animationMode;
+    }
+
+    /**
+     * @param mode {@link #ANIMATION_MODE_DRAW} or {@link #ANIMATION_MODE_RENDER_THREAD}
+     */
+    public void setAnimationMode(int mode) {
+        if (mode == animationMode) {
+            return;
+        }
+        timeline.cancel();
+        animationMode = mode;
+        if (mode == ANIMATION_MODE_RENDER_THREAD) {
+            discLayer = new RevealLayerView(getContext(), false, 0f);
+            collapsedCoreLayer = new RevealLayerView(getContext(), true, 0f);
+            expandedCoreLayer = new RevealLayerView(getContext(), true, 1f);
+            addView(discLayer, 0);
+            addView(collapsedCoreLayer, 1);
+            addView(expandedCoreLayer, 2);
+            decorCount = 3;
+            updateRevealLayers();
+        } else {
+            removeView(discLayer);
+            removeView(collapsedCoreLayer);
+            removeView(expandedCoreLayer);
+            discLayer = collapsedCoreLayer = expandedCoreLayer = null;
+            decorCount = 0;
+            setExpandProgress(expandProgress);
+        }
+    }
+
+    /**
+     * @return count of menu items, not including the reveal layers
+     */
+    int getItemCount() {
+        return getChildCount() - decorCount;
+    }
+
+    View getItemView(int index) {
+        return getChildAt(decorCount + index);
+    }
+
+    FilterMenu.Item getItem(int index) {
+        return (FilterMenu.Item) getItemView(index).getTag();
+    }
+
+    /**
+     * add the view of an item inserted into the menu, it fades in on the next layout while expanded
+     */
+    void addItemView(int index, View view) {
+        pendingItemTransition = true;
+        addView(view, decorCount + index);
+    }
 
-            if (center.y + dy < menuBounds.bottom) {
-                intersectPoints.add(new Point(menuBounds.left, center.y + dy));
+    /**
+     * remove the view of an item removed from the menu, while expanded it fades out before it is gone
+     *
+     * @param pool receives the view once it is gone, may be null
+     */
+    void removeItemView(final View view, final ItemViewPool pool) {
+        pendingItemTransition = true;
+        if (touchedItem != null && touchedItem.getView() == view) {
+            touchedItem = null;
+            inChild = false;
+        }
+        if (state != STATE_EXPAND || view.getVisibility() != View.VISIBLE) {
+            removeView(view);
+            if (pool != null) {
+                pool.release((ImageButton) view);
             }
+            return;
+        }
+        // keep drawing the view until its animation ends, like LayoutTransition does
+        startViewTransition(view);
+        removeView(view);
+        view.animate()
+                .setStartDelay(0)
+                .setDuration(DURATION)
+                .alpha(0f)
+                .scaleX(0f)
+                .scaleY(0f)
+                .setListener(new AnimatorListenerAdapter() {
+                    @Override
+                    public void onAnimationEnd(Animator animation) {
+                        view.animate().setListener(null);
+                        endViewTransition(view);
+                        if (pool != null) {
+                            pool.release((ImageButton) view);
+                        }
+                    }
+                })
+                .start();
+    }
 
+    /**
+     * move the view of a moved item without removing it from the window
+     */
+    void moveItemView(int fromIndex, int toIndex) {
+        pendingItemTransition = true;
+        View view = getItemView(fromIndex);
+        detachViewFromParent(decorCount + fromIndex);
+        attachViewToParent(view, decorCount + toIndex, view.getLayoutParams());
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * animate an item from where it was drawn before the menu changed to its new slot, new items grow in
+     */
+    private void animateItemChange(View view, boolean placed, int dx, int dy) {
+        if (!placed) {
+            view.setScaleX(.5f);
+            view.setScaleY(.5f);
+            view.animate()
+                    .setStartDelay(0)
+                    .setDuration(DURATION)
+                    .alpha(1f)
+                    .scaleX(1f)
+                    .scaleY(1f)
+                    .start();
+            return;
+        }
+        dx += (int) view.getTranslationX();
+        dy += (int) view.getTranslationY();
+        if (dx == 0 && dy == 0) {
+            return;
         }
-        //top edge
-        if (center.y - menuBounds.top < expandedRadius) {
-            int dx = (int) Math.sqrt(Math.pow(expandedRadius, 2) - Math.pow(center.y - menuBounds.top, 2));
-            if (center.x + dx < menuBounds.right) {
-                intersectPoints.add(new Point(center.x + dx, menuBounds.top));
+        view.setTranslationX(dx);
+        view.setTranslationY(dy);
+        view.animate()
+                .setStartDelay(0)
+                .setDuration(DURATION)
+                .translationX(0f)
+                .translationY(0f)
+                .start();
+    }
+
+    /**
+     * calculate and set position to the menu items in the slots from, to
+     */
+    private void calculateMenuItemPosition(int from, int to) {
+        float itemRadius = (expandedRadius + collapsedRadius) / 2;
+        int count = getItemCount();
+        int maxItemSize = 0;
+        int maxIconSize = 0;
+        for (int i = 0; i < count; i++) {
+            FilterMenu.Item item = getItem(i);
+            int width = item.getView().getMeasuredWidth();
+            int height = item.getView().getMeasuredHeight();
+            if (i >= from && i < to) {
+                geometry.calculateItemPosition(i, count, itemRadius, itemCoords);
+                item.setX((int) itemCoords[0] - width / 2);
+                item.setY((int) itemCoords[1] - height / 2);
             }
-            if (center.x - dx > menuBounds.left) {
-                intersectPoints.add(new Point(center.x - dx, menuBounds.top));
+            maxItemSize = Math.max(maxItemSize, Math.max(width, height));
+            maxIconSize = Math.max(maxIconSize, iconSizeOf(item.getView()));
+        }
+        itemIconSize = maxIconSize;
+        // the padded hit bounds reach at most this far from an item center, see TOUCH_OFFSET_RATIO
+        hitIndex.rebuild(center.x, center.y, itemRadius, fromAngle, toAngle, count, maxItemSize);
+    }
+
+    /**
+     * @return larger edge of the measured view inside its padding
+     */
+    private static int iconSizeOf(View view) {
+        return Math.max(view.getMeasuredWidth() - view.getPaddingLeft() - view.getPaddingRight(),
+                view.getMeasuredHeight() - view.getPaddingTop() - view.getPaddingBottom());
+    }
+
+    /**
+     * @return edge in pixels the item icons are shown at once the items were measured, 0 before that.
+     * The {@link IconLoader} downsamples icons to it
+     */
+    int getItemIconSize() {
+        return itemIconSize;
+    }
+
+    /**
+     * calculate menu items display area, the largest arc inside the menu bounds
+     */
+    private void clipArc() {
+        geometry.setCenter(center.x, center.y);
+        geometry.setRadius(expandedRadius);
+        geometry.setBounds(menuBounds.left, menuBounds.top, menuBounds.right, menuBounds.bottom);
+        // the corners are rounded only where the bounds reach the edges of the view
+        int left = Math.max(getPaddingLeft(), windowInsets.left);
+        int top = Math.max(getPaddingTop(), windowInsets.top);
+        int right = getWidth() - Math.max(getPaddingRight(), windowInsets.right);
+        int bottom = getHeight() - Math.max(getPaddingBottom(), windowInsets.bottom);
+        geometry.setCornerRadii(
+                menuBounds.left == left && menuBounds.top == top ? cornerRadii[0] : 0,
+                menuBounds.right == right && menuBounds.top == top ? cornerRadii[1] : 0,
+                menuBounds.right == right && menuBounds.bottom == bottom ? cornerRadii[2] : 0,
+                menuBounds.left == left && menuBounds.bottom == bottom ? cornerRadii[3] : 0);
+        geometry.clearExclusions();
+        for (int i = 0; i < exclusionRects.size(); i++) {
+            Rect rect = exclusionRects.get(i);
+            geometry.addExclusion(rect.left, rect.top, rect.right, rect.bottom);
+        }
+        geometry.clipArc();
+        fromAngle = geometry.getFromAngle();
+        toAngle = geometry.getToAngle();
+        scheduler.setArc(fromAngle, toAngle);
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public void setMenu(FilterMenu menu) {
+        if (menu != this.menu) {
+            scrollPosition = 0;
+        }
+        this.menu = menu;
+        updateVirtualization();
+        // slot buttons of a virtualized menu belong to the layout
+        itemViewOwner = virtualized ? null : menu;
+        if (menu != null && pendingRestoredExpand) {
+            pendingRestoredExpand = false;
+            if (state == STATE_EXPAND) {
+                // the restored state was applied while there were no items to show
+                expand(false);
             }
         }
+        if (menu != null) {
+            schedulePrefetch();
+        } else {
+            cancelPrefetch();
+        }
+    }
 
-        //right edge
-        if (menuBounds.right - center.x < expandedRadius) {
-            int dy = (int) Math.sqrt(Math.pow(expandedRadius, 2) - Math.pow(menuBounds.right - center.x, 2));
+    public FilterMenu getMenu() {
+        return menu;
+    }
 
-            if (center.y - dy > menuBounds.top) {
-                intersectPoints.add(new Point(menuBounds.right, center.y - dy));
+    /**
+     * show the menu in this layout, made for layouts recycled in list rows.
+     * <p>
+     * When the layout shows as many builder created buttons as the menu has items, the buttons are kept and only
+     * icon, enabled state and title are swapped, nothing is allocated. Otherwise the item views are replaced.
+     * Running animations are cancelled and the layout is reset to collapsed without notifying any listener.
+     */
+    public void bind(FilterMenu menu) {
+        if (this.menu == menu) {
+            resetState();
+            return;
+        }
+        unbind();
+        List<FilterMenu.Item> items = menu.getItems();
+        if (virtualizes(menu)) {
+            // the slot buttons are rebound to the new items
+            menu.setLayout(this);
+            setMenu(menu);
+            return;
+        }
+        if (virtualized) {
+            removeViews(decorCount, getItemCount());
+            virtualized = false;
+        }
+        if (canReuseItemViews(items)) {
+            if (itemViewOwner != null && itemViewOwner != menu) {
+                // the buttons show the new items now, the previous menu must neither remove nor recycle them
+                itemViewOwner.releaseViews();
+            }
+            for (int i = 0; i < items.size(); i++) {
+                rebindItem(items.get(i), (ImageButton) getItemView(i), menu.getIconLoader());
             }
-            if (center.y + dy < menuBounds.bottom) {
-                intersectPoints.add(new Point(menuBounds.right, center.y + dy));
+            menu.setMaterialized(true);
+            menu.setLayout(this);
+            setMenu(menu);
+        } else {
+            removeViews(decorCount, getItemCount());
+            for (int i = 0; i < items.size(); i++) {
+                FilterMenu.Item item = items.get(i);
+                ViewParent parent = item.getView() != null ? item.getView().getParent() : null;
+                if (parent == null) {
+                    continue;
+                }
+                // the view still shows in another layout this menu was bound to
+                if (item.isRecyclable()) {
+                    rebindItem(item, (ImageButton) LayoutInflater.from(getContext()).inflate(R.layout.menu_item, this, false),
+                            menu.getIconLoader());
+                } else {
+                    ((ViewGroup) parent).removeView(item.getView());
+                }
             }
+            menu.setMenuLayout(this);
+            resetState();
+        }
+        invalidateLayoutCache();
+        requestLayout();
+    }
+
+    /**
+     * cancel animations, reset to collapsed and forget the menu, the item views stay so the next
+     * {@link #bind(FilterMenu)} can reuse them
+     */
+    public void unbind() {
+        resetState();
+        if (menu != null) {
+            menu.setLayout(null);
+            menu = null;
+        }
+        cancelPrefetch();
+    }
 
+    private boolean canReuseItemViews(List<FilterMenu.Item> items) {
+        if (getItemCount() != items.size()) {
+            return false;
         }
-        //bottom edge
-        if (menuBounds.bottom - center.y < expandedRadius) {
-            int dx = (int) Math.sqrt(Math.pow(expandedRadius, 2) - Math.pow(menuBounds.bottom - center.y, 2));
-            if (center.x + dx < menuBounds.right) {
-                intersectPoints.add(new Point(center.x + dx, menuBounds.bottom));
+        for (int i = 0; i < items.size(); i++) {
+            View view = getItemView(i);
+            if (!items.get(i).isRecyclable() || !(view instanceof ImageButton)
+                    || !(view.getTag() instanceof FilterMenu.Item) || !((FilterMenu.Item) view.getTag()).isRecyclable()) {
+                return false;
             }
-            if (center.x - dx > menuBounds.left) {
-                intersectPoints.add(new Point(center.x - dx, menuBounds.bottom));
+        }
+        return true;
+    }
+
+    /**
+     * @param iconLoader loader of the menu being bound, may be null
+     */
+    private void rebindItem(FilterMenu.Item item, ImageButton button, IconLoader iconLoader) {
+        boolean loadIcon = bindButton(item, button, iconLoader);
+        item.setView(button);
+        if (loadIcon) {
+            iconLoader.bindIcon(item, button, itemIconSize);
+        }
+    }
+
+    /**
+     * show the item on the button without making it the item's view
+     *
+     * @return true if the icon still has to be loaded by the icon loader
+     */
+    private boolean bindButton(FilterMenu.Item item, ImageButton button, IconLoader iconLoader) {
+        // icons of lazy menu descriptors and of icons still loading are not there yet
+        boolean loadIcon = item.getIcon() == null && item.getIconResId() != 0;
+        if (loadIcon && iconLoader == null) {
+            item.setIcon(getResources().getDrawable(item.getIconResId()));
+            loadIcon = false;
+        }
+        if (!loadIcon && button.getDrawable() != item.getIcon()) {
+            button.setImageDrawable(item.getIcon());
+        }
+        button.setEnabled(item.isEnabled());
+        button.setContentDescription(item.getTitle());
+        button.setTag(item);
+        if (itemClickListener == null) {
+            itemClickListener = new OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    FilterMenu.Item clicked = (FilterMenu.Item) v.getTag();
+                    if (menu != null && menu.getListener() != null) {
+                        menu.getListener().onMenuItemClick(v, clicked.getPosition());
+                    }
+                    collapse(true);
+                }
+            };
+        }
+        button.setOnClickListener(itemClickListener);
+        return loadIcon;
+    }
+
+    public int getMaxVisibleItems() {
+        return maxVisibleItems;
+    }
+
+    /**
+     * @param max most items shown at once. A menu with more items, all of them created by the builder, is
+     *            virtualized: max + 1 recycled buttons show a window of the items and a drag along the ring
+     *            turns it to the others. The builder creates no buttons for the items of such a menu, set this
+     *            before building it. 0 shows every item
+     */
+    public void setMaxVisibleItems(int max) {
+        this.maxVisibleItems = max;
+        updateVirtualization();
+    }
+
+    /**
+     * @return true if recycled slot buttons show a window of the menu items, see {@link #setMaxVisibleItems(int)}
+     */
+    public boolean isVirtualized() {
+        return virtualized;
+    }
+
+    /**
+     * @return true if the menu would be virtualized by this layout, its item views are not added then
+     */
+    boolean virtualizes(FilterMenu menu) {
+        return menu != null && virtualizes(menu.getItems());
+    }
+
+    /**
+     * @return true if a menu of these items would be virtualized, the builder creates no views for it then
+     */
+    boolean virtualizes(List<FilterMenu.Item> items) {
+        if (maxVisibleItems <= 0 || items.size() <= maxVisibleItems) {
+            return false;
+        }
+        for (FilterMenu.Item item : items) {
+            if (!item.isRecyclable()) {
+                return false;
             }
         }
+        return true;
+    }
 
+    /**
+     * items of the menu were inserted, removed, moved or updated
+     */
+    void onMenuItemsChanged() {
+        updateVirtualization();
+    }
 
-        //find the maximum arc in menuBounds
-        int size = intersectPoints.size();
-        if (size == 0) {
-            fromAngle = 0;
-            toAngle = 360;
+    /**
+     * switch between virtualized slot buttons and the menu's own item views if needed, rebind the slots otherwise
+     */
+    private void updateVirtualization() {
+        boolean virtualize = virtualizes(menu);
+        if (virtualize && virtualized && getItemCount() == maxVisibleItems + 1) {
+            boundFirstItem = -1;
+            setScrollPosition(scrollPosition);
             return;
         }
-        int indexA = size - 1;
-        double maxAngle = arcAngle(center, intersectPoints.get(0), intersectPoints.get(indexA), menuBounds, expandedRadius);
-        for (int i = 0; i < size - 1; i++) {
-            Point a = intersectPoints.get(i);
-            Point b = intersectPoints.get(i + 1);
-            double angle = arcAngle(center, a, b, menuBounds, expandedRadius);
-            Point midnormalPoint = findMidnormalPoint(center, a, b, menuBounds, expandedRadius);
-
-            //if the arc(a->midnormalPoint->b) is in menuBounds and the angle is bigger, select it
-            int pointerIndex = i;
-            int endIndex = indexA + 1;
-            if (!isClockwise(center, a, midnormalPoint)) {
-                int tmpIndex = pointerIndex;
-                pointerIndex = endIndex;
-                endIndex = tmpIndex;
-            }
-            if (pointerIndex == intersectPoints.size() - 1) {
-                pointerIndex = 0;
-            } else {
-                pointerIndex++;
+        if (!virtualize && !virtualized) {
+            return;
+        }
+        removeViews(decorCount, getItemCount());
+        virtualized = virtualize;
+        slotsPlaced = false;
+        if (virtualize) {
+            LayoutInflater inflater = LayoutInflater.from(getContext());
+            for (int i = 0; i <= maxVisibleItems; i++) {
+                View slot = inflater.inflate(R.layout.menu_item, this, false);
+                slot.setAlpha(state == STATE_EXPAND ? 1f : 0f);
+                slot.setVisibility(state == STATE_EXPAND ? VISIBLE : GONE);
+                addView(slot);
             }
-
-            if (pointerIndex == endIndex && angle > maxAngle) {
-                indexA = i;
-                maxAngle = angle;
+            boundFirstItem = -1;
+            setScrollPosition(scrollPosition);
+        } else if (menu != null && menu.isMaterialized()) {
+            for (FilterMenu.Item item : menu.getItems()) {
+                addView(item.getView());
             }
         }
+        hitIndex.clear();
+        invalidateLayoutCache();
+        requestLayout();
+    }
 
-        Point a = intersectPoints.get(indexA);
-        Point b = intersectPoints.get(indexA + 1 >= size ? 0 : indexA + 1);
-        Point midnormalPoint = findMidnormalPoint(center, a, b, menuBounds, expandedRadius);
+    /**
+     * turn the ring of a virtualized menu on with a velocity, slowing down exponentially and coming to rest
+     * on a whole item. Frames only translate the slot buttons, no layout pass runs
+     *
+     * @param velocity items per second, positive scrolls towards the last item
+     */
+    public void fling(float velocity) {
+        if (!virtualized) {
+            return;
+        }
+        int max = menu.getItems().size() - maxVisibleItems;
+        flingFrom = scrollPosition;
+        // an exponential decay travels its initial velocity times its time constant
+        float distance = velocity * FLING_DECAY_SECONDS;
+        flingTo = Math.max(0, Math.min(max, Math.round(scrollPosition + distance)));
+        if (flingTo == flingFrom) {
+            return;
+        }
+        if (flingAnimator == null) {
+            flingAnimator = ValueAnimator.ofFloat(0f, 1f);
+            flingAnimator.setInterpolator(new DecayInterpolator());
+            flingAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    setScrollPosition(flingFrom + (flingTo - flingFrom) * animation.getAnimatedFraction());
+                }
+            });
+        }
+        flingAnimator.cancel();
+        // a slow release only settles on the nearest item
+        boolean settle = Math.abs(distance) < .5f;
+        flingAnimator.setDuration(settle ? DURATION : (long) (FLING_DECAY_SECONDS * DecayInterpolator.TIME_CONSTANTS * 1000));
+        flingAnimator.start();
+    }
 
-        Point x = new Point(menuBounds.right, center.y);
-        if (!isClockwise(center, a, midnormalPoint)) {
-            Point tmp = a;
-            a = b;
-            b = tmp;
+    private void stopFling() {
+        if (flingAnimator != null) {
+            flingAnimator.cancel();
         }
+    }
 
-        fromAngle = pointAngleOnCircle(center, a, x);
-        toAngle = pointAngleOnCircle(center, b, x);
-        toAngle = toAngle <= fromAngle ? 360 + toAngle : toAngle;
+    public float getScrollPosition() {
+        return scrollPosition;
     }
 
     /**
-     * judge a->b is ordered clockwise
-     *
-     * @param center
-     * @param a
-     * @param b
-     * @return
+     * turn the ring of a virtualized menu so the item at the position is in the first slot, a fraction turns it
+     * part of a slot further. Only the slot buttons are translated, no layout pass runs
      */
-    private boolean isClockwise(Point center, Point a, Point b) {
-        double cross = (a.x - center.x) * (b.y - center.y) - (b.x - center.x) * (a.y - center.y);
-        return cross > 0;
+    public void setScrollPosition(float position) {
+        if (!virtualized) {
+            scrollPosition = 0;
+            return;
+        }
+        int max = menu.getItems().size() - maxVisibleItems;
+        scrollPosition = Math.max(0, Math.min(max, position));
+        int first = (int) scrollPosition;
+        if (first != boundFirstItem) {
+            bindSlots(first);
+        }
+        applyScrollOffset();
     }
 
-    public int getState() {
-        return state;
+    /**
+     * show the items from first on the slot buttons, costs the same however many items the menu holds
+     */
+    private void bindSlots(int first) {
+        List<FilterMenu.Item> items = menu.getItems();
+        IconLoader iconLoader = menu.getIconLoader();
+        for (int i = 0; i < getItemCount(); i++) {
+            ImageButton slot = (ImageButton) getItemView(i);
+            int index = first + i;
+            if (index < items.size()) {
+                FilterMenu.Item item = items.get(index);
+                if (bindButton(item, slot, iconLoader)) {
+                    iconLoader.bindIcon(item, slot, itemIconSize);
+                }
+            } else {
+                slot.setTag(null);
+                slot.setImageDrawable(null);
+            }
+        }
+        boundFirstItem = first;
     }
 
-    public void setMenu(FilterMenu menu) {
-        this.menu = menu;
+    /**
+     * lay the slot buttons out at whole slots, {@link #applyScrollOffset()} translates them by the fraction
+     */
+    private void layoutSlots(int l, int t) {
+        if (!layoutCache.lookup(this, center.x, center.y, collapsedRadius, expandedRadius) || !slotsPlaced) {
+            updateMenuBounds(getWidth(), getHeight());
+            slotArcRadius = (expandedRadius + collapsedRadius) / 2;
+            int count = getItemCount();
+            if (slotCenters.length < count * 2) {
+                slotCenters = new float[count * 2];
+            }
+            for (int i = 0; i < count; i++) {
+                geometry.calculateSlotPosition(i + .5, maxVisibleItems, slotArcRadius, itemCoords);
+                slotCenters[i * 2] = itemCoords[0];
+                slotCenters[i * 2 + 1] = itemCoords[1];
+            }
+            slotsPlaced = true;
+        }
+        int maxIconSize = 0;
+        for (int i = 0; i < getItemCount(); i++) {
+            View slot = getItemView(i);
+            maxIconSize = Math.max(maxIconSize, iconSizeOf(slot));
+            int left = l + (int) slotCenters[i * 2] - slot.getMeasuredWidth() / 2;
+            int top = t + (int) slotCenters[i * 2 + 1] - slot.getMeasuredHeight() / 2;
+            slot.layout(left, top, left + slot.getMeasuredWidth(), top + slot.getMeasuredHeight());
+        }
+        itemIconSize = maxIconSize;
+        applyScrollOffset();
+    }
+
+    /**
+     * translate the slot buttons from their whole slot by the scroll fraction, slots off the arc are hidden
+     */
+    private void applyScrollOffset() {
+        if (!slotsPlaced) {
+            return;
+        }
+        float fraction = scrollPosition - boundFirstItem;
+        for (int i = 0; i < getItemCount(); i++) {
+            View slot = getItemView(i);
+            double position = i + .5 - fraction;
+            geometry.calculateSlotPosition(position, maxVisibleItems, slotArcRadius, itemCoords);
+            slot.setTranslationX(itemCoords[0] - slotCenters[i * 2]);
+            slot.setTranslationY(itemCoords[1] - slotCenters[i * 2 + 1]);
+            if (state == STATE_EXPAND) {
+                boolean onArc = slot.getTag() != null && position >= 0 && position <= maxVisibleItems;
+                slot.setVisibility(onArc ? VISIBLE : INVISIBLE);
+            }
+        }
+    }
+
+    /**
+     * cancel all animations and jump to collapsed, without notifying listeners
+     */
+    private void resetState() {
+        timeline.reset();
+        stopFling();
+        if (frameStatsCollector != null) {
+            frameStatsCollector.cancel();
+        }
+        for (int i = 0; i < getItemCount(); i++) {
+            View child = getItemView(i);
+            child.animate().cancel();
+            child.setPressed(false);
+            child.setScaleX(1f);
+            child.setScaleY(1f);
+            child.setTranslationX(0f);
+            child.setTranslationY(0f);
+            child.setAlpha(0f);
+            child.setVisibility(View.GONE);
+        }
+        pendingItemTransition = false;
+        state = STATE_COLLAPSE;
+        isExpand = false;
+        inChild = false;
+        touchedItem = null;
+        primaryDarkPaint.setColor(primaryColor);
+        setExpandProgress(0f);
     }
 
 
@@ -777,6 +2137,7 @@ public class FilterMenuLayout extends ViewGroup {
             collapse(false);
         } else {
             expand(false);
+            pendingRestoredExpand = menu == null;
         }
     }
 
@@ -800,18 +2161,98 @@ public class FilterMenuLayout extends ViewGroup {
 
     public void setExpandedRadius(int expandedRadius) {
         this.expandedRadius = expandedRadius;
+        clearIdleStateCache();
+        updateRevealLayers();
+        invalidateLayoutCache();
         requestLayout();
     }
 
+    /**
+     * round the corners of the area the menu items are placed in, e.g. with the rounded corners of the
+     * display when the layout fills the window. A corner is rounded only where the area reaches the edges
+     * of the layout, 0 for a square corner
+     */
+    public void setCornerRadii(int topLeft, int topRight, int bottomRight, int bottomLeft) {
+        cornerRadii[0] = topLeft;
+        cornerRadii[1] = topRight;
+        cornerRadii[2] = bottomRight;
+        cornerRadii[3] = bottomLeft;
+        invalidateLayoutCache();
+        requestLayout();
+    }
+
+    /**
+     * keep the menu items out of these areas, e.g. the bounding rects of the display cutout
+     *
+     * @param rects in the coordinates of this layout, null to clear them
+     */
+    public void setExclusionRects(List<Rect> rects) {
+        exclusionRects.clear();
+        if (rects != null) {
+            for (Rect rect : rects) {
+                exclusionRects.add(new Rect(rect));
+            }
+        }
+        invalidateLayoutCache();
+        requestLayout();
+    }
+
+    public List<Rect> getExclusionRects() {
+        return exclusionRects;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT_WATCH)
+    @Override
+    public WindowInsets onApplyWindowInsets(WindowInsets insets) {
+        if (insets.getSystemWindowInsetLeft() != windowInsets.left
+                || insets.getSystemWindowInsetTop() != windowInsets.top
+                || insets.getSystemWindowInsetRight() != windowInsets.right
+                || insets.getSystemWindowInsetBottom() != windowInsets.bottom) {
+            windowInsets.set(insets.getSystemWindowInsetLeft(), insets.getSystemWindowInsetTop(),
+                    insets.getSystemWindowInsetRight(), insets.getSystemWindowInsetBottom());
+            invalidateLayoutCache();
+            requestLayout();
+        }
+        return super.onApplyWindowInsets(insets);
+    }
+
     public int getCollapsedRadius() {
         return collapsedRadius;
     }
 
     public void setCollapsedRadius(int collapsedRadius) {
         this.collapsedRadius = collapsedRadius;
+        clearIdleStateCache();
+        updateRevealLayers();
+        invalidateLayoutCache();
         requestLayout();
     }
 
+    /**
+     * drop the cached item positions, the next layout pass will place all items again
+     */
+    public void invalidateLayoutCache() {
+        layoutCache.invalidate();
+    }
+
+    /**
+     * @return how many layout passes reused the item positions of the previous pass
+     */
+    public int getLayoutCacheHitCount() {
+        return layoutCache.getHitCount();
+    }
+
+    /**
+     * @return how many layout passes had to place the items again
+     */
+    public int getLayoutCacheMissCount() {
+        return layoutCache.getMissCount();
+    }
+
+    public void resetLayoutCacheStats() {
+        layoutCache.resetStats();
+    }
+
     public int getPrimaryColor() {
         return primaryColor;
     }
@@ -819,6 +2260,9 @@ public class FilterMenuLayout extends ViewGroup {
     public void setPrimaryColor(int color) {
         this.primaryColor = color;
         primaryPaint.setColor(primaryColor);
+        timeline.setColors(primaryColor, primaryDarkColor);
+        clearIdleStateCache();
+        updateRevealLayers();
         invalidate();
     }
 
@@ -829,9 +2273,19 @@ public class FilterMenuLayout extends ViewGroup {
     public void setPrimaryDarkColor(int color) {
         this.primaryDarkColor = color;
         primaryDarkPaint.setColor(color);
+        timeline.setColors(primaryColor, primaryDarkColor);
+        clearIdleStateCache();
+        updateRevealLayers();
         invalidate();
     }
 
+    public interface OnFrameStatsListener {
+        /**
+         * called on the main thread after an expand or collapse animation ends
+         */
+        void onFrameStats(AnimationFrameStats stats);
+    }
+
     public static class SavedState extends BaseSavedState {
 
         public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
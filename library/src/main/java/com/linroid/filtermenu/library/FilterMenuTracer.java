@@ -0,0 +1,50 @@
+package com.linroid.filtermenu.library;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Receives timed sections of menu construction, first measure/layout/draw and every expand/collapse.
+ * <p>
+ * Register one for all layouts with {@link FilterMenuLayout#setGlobalTracer(FilterMenuTracer)} or for a single
+ * layout with {@link FilterMenuLayout#setTracer(FilterMenuTracer)}. Nothing is traced when no tracer is set.
+ * Sections are nested and always ended on the thread that began them.
+ */
+public interface FilterMenuTracer {
+    String SECTION_INFLATE = "FilterMenu#inflate";
+    String SECTION_ADD_ITEM = "FilterMenu#addItem";
+    String SECTION_SET_MENU_LAYOUT = "FilterMenu#setMenuLayout";
+    String SECTION_INIT = "FilterMenuLayout#init";
+    String SECTION_FIRST_MEASURE = "FilterMenuLayout#firstMeasure";
+    String SECTION_FIRST_LAYOUT = "FilterMenuLayout#firstLayout";
+    String SECTION_FIRST_DRAW = "FilterMenuLayout#firstDraw";
+    String SECTION_EXPAND = "FilterMenuLayout#expand";
+    String SECTION_COLLAPSE = "FilterMenuLayout#collapse";
+
+    void beginSection(String name);
+
+    void endSection();
+
+    /**
+     * forwards sections to {@link Trace}, so they show up in systrace and Perfetto,
+     * does nothing before JELLY_BEAN_MR2
+     */
+    class Systrace implements FilterMenuTracer {
+        @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+        @Override
+        public void beginSection(String name) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                Trace.beginSection(name);
+            }
+        }
+
+        @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+        @Override
+        public void endSection() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                Trace.endSection();
+            }
+        }
+    }
+}
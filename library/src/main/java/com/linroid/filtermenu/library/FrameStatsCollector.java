@@ -0,0 +1,101 @@
+package com.linroid.filtermenu.library;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+/**
+ * Records the vsync time of every frame while an expand or collapse animation runs and
+ * summarizes it into an {@link AnimationFrameStats} once the animation is over.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+final class FrameStatsCollector implements Choreographer.FrameCallback {
+    private final FilterMenuLayout.OnFrameStatsListener listener;
+    private long[] durations = new long[64];
+    private int frameCount;
+    private int state;
+    private boolean running;
+    private long frameIntervalNanos;
+    private long animationNanos;
+    private long firstFrameNanos;
+    private long lastFrameNanos;
+
+    FrameStatsCollector(FilterMenuLayout.OnFrameStatsListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * start recording, a running recording is finished and delivered first
+     *
+     * @param state              {@link FilterMenuLayout#STATE_EXPAND} or {@link FilterMenuLayout#STATE_COLLAPSE}
+     * @param durationMillis     how long the animation runs, including item delays
+     * @param frameIntervalNanos expected time between frames of the display
+     */
+    void start(int state, long durationMillis, long frameIntervalNanos) {
+        if (running) {
+            finish();
+        }
+        this.state = state;
+        this.animationNanos = durationMillis * 1000000L;
+        this.frameIntervalNanos = frameIntervalNanos;
+        frameCount = 0;
+        firstFrameNanos = 0;
+        lastFrameNanos = 0;
+        running = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * stop recording without delivering anything
+     */
+    void cancel() {
+        if (running) {
+            running = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (firstFrameNanos == 0) {
+            firstFrameNanos = frameTimeNanos;
+        } else {
+            record(frameTimeNanos - lastFrameNanos);
+        }
+        lastFrameNanos = frameTimeNanos;
+        if (frameTimeNanos - firstFrameNanos >= animationNanos) {
+            finish();
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    private void record(long duration) {
+        if (frameCount == durations.length) {
+            long[] grown = new long[durations.length * 2];
+            System.arraycopy(durations, 0, grown, 0, frameCount);
+            durations = grown;
+        }
+        durations[frameCount++] = duration;
+    }
+
+    private void finish() {
+        cancel();
+        long[] frames = new long[frameCount];
+        System.arraycopy(durations, 0, frames, 0, frameCount);
+        int dropped = 0;
+        long worst = 0;
+        long total = 0;
+        for (long duration : frames) {
+            total += duration;
+            worst = Math.max(worst, duration);
+            if (frameIntervalNanos > 0) {
+                dropped += Math.max(0, Math.round((double) duration / frameIntervalNanos) - 1);
+            }
+        }
+        listener.onFrameStats(new AnimationFrameStats(state, frames, frameIntervalNanos, dropped, worst, total));
+    }
+}
@@ -0,0 +1,320 @@
+package com.linroid.filtermenu.library;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageButton;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Decodes menu icons on a background executor and keeps them in an LRU cache, so menus showing the same
+ * icons decode each of them once. Set it with {@link FilterMenu.Builder#withIconLoader(IconLoader)}.
+ * <p>
+ * Icons are downsampled to the size they are shown at, and cached by resource, size and density within a
+ * byte budget. The loader trims its cache on {@link #onTrimMemory(int)}. Buttons show a placeholder of
+ * the icon size until their icon arrives.
+ */
+public class IconLoader implements ComponentCallbacks2 {
+    public static final String TAG = "IconLoader";
+    public static final int DEFAULT_MAX_BYTES = 2 * 1024 * 1024;
+    public static final int DEFAULT_ICON_SIZE_DP = 32;
+    /**
+     * requested sizes are rounded up to a multiple of this, so close sizes share one bitmap *
+     */
+    static final int SIZE_BUCKET_PX = 8;
+
+    private static IconLoader instance;
+
+    private final Resources resources;
+    private final Executor executor;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final LruCache<Long, Bitmap> cache;
+    /**
+     * callbacks waiting for an icon being decoded, by cache key *
+     */
+    private final Map<Long, List<Callback>> pending = new HashMap<>();
+    private final int iconSize;
+    private int placeholderResId;
+
+    /**
+     * @return the loader shared by the whole process, using {@link #DEFAULT_MAX_BYTES}
+     */
+    public static synchronized IconLoader getInstance(Context ctx) {
+        if (instance == null) {
+            instance = new IconLoader(ctx);
+        }
+        return instance;
+    }
+
+    public IconLoader(Context ctx) {
+        this(ctx, DEFAULT_MAX_BYTES, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * @param maxBytes bytes the cached bitmaps may take
+     * @param executor decodes the icons
+     */
+    public IconLoader(Context ctx, int maxBytes, Executor executor) {
+        Context app = ctx.getApplicationContext();
+        this.resources = app.getResources();
+        this.executor = executor;
+        this.iconSize = Math.round(DEFAULT_ICON_SIZE_DP * resources.getDisplayMetrics().density);
+        this.cache = new LruCache<Long, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Long key, Bitmap value) {
+                return value.getRowBytes() * value.getHeight();
+            }
+        };
+        app.registerComponentCallbacks(this);
+    }
+
+    /**
+     * @param resId drawable shown while an icon is loading, 0 for an empty placeholder of the icon size
+     */
+    public void setPlaceholder(int resId) {
+        this.placeholderResId = resId;
+    }
+
+    /**
+     * @return the cached icon, or null if it was not decoded at this size yet
+     */
+    public Bitmap getCached(int resId, int size) {
+        return cache.get(key(resId, bucket(size)));
+    }
+
+    /**
+     * @param size edge in pixels the icon is shown at, 0 for {@link #DEFAULT_ICON_SIZE_DP}
+     * @return the cached icon, or null if it is decoded in the background and delivered to the callback
+     * on the main thread. The callback receives null if the resource can't be decoded
+     */
+    public Bitmap load(final int resId, int size, Callback callback) {
+        final int bucket = bucket(size);
+        final Long key = key(resId, bucket);
+        Bitmap cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (pending) {
+            List<Callback> callbacks = pending.get(key);
+            if (callbacks != null) {
+                callbacks.add(callback);
+                return null;
+            }
+            callbacks = new ArrayList<>();
+            callbacks.add(callback);
+            pending.put(key, callbacks);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = null;
+                try {
+                    bitmap = decode(resId, bucket);
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    Log.w(TAG, "Failed to decode icon " + resId, e);
+                }
+                if (bitmap != null) {
+                    cache.put(key, bitmap);
+                }
+                deliver(key, resId, bitmap);
+            }
+        });
+        return null;
+    }
+
+    private void deliver(final Long key, final int resId, final Bitmap bitmap) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                List<Callback> callbacks;
+                synchronized (pending) {
+                    callbacks = pending.remove(key);
+                }
+                if (callbacks == null) {
+                    return;
+                }
+                for (Callback callback : callbacks) {
+                    callback.onIconLoaded(resId, bitmap);
+                }
+            }
+        });
+    }
+
+    /**
+     * show the icon of the item on its button, right away if it is cached, otherwise a placeholder
+     * until it is decoded. Nothing changes if the item was rebound to another icon or button meanwhile.
+     * May run off the main thread while the button is not attached
+     *
+     * @param size edge in pixels the layout shows item icons at, 0 for {@link #DEFAULT_ICON_SIZE_DP}
+     */
+    void bindIcon(final FilterMenu.Item item, final ImageButton button, int size) {
+        final int resId = item.getIconResId();
+        if (size <= 0) {
+            size = iconSize;
+        }
+        Bitmap bitmap = getCached(resId, size);
+        if (bitmap == null) {
+            // before load() registers the callback, which may show the icon on the main thread before load() returns
+            button.setImageDrawable(createPlaceholder(size));
+            bitmap = load(resId, size, new Callback() {
+                @Override
+                public void onIconLoaded(int loadedResId, Bitmap bitmap) {
+                    if (bitmap != null && button.getTag() == item && item.getIconResId() == loadedResId) {
+                        setIcon(item, button, bitmap);
+                    }
+                }
+            });
+        }
+        if (bitmap != null) {
+            setIcon(item, button, bitmap);
+        }
+    }
+
+    private void setIcon(FilterMenu.Item item, ImageButton button, Bitmap bitmap) {
+        Drawable icon = new BitmapDrawable(resources, bitmap);
+        item.setIcon(icon);
+        button.setImageDrawable(icon);
+    }
+
+    private Drawable createPlaceholder(int size) {
+        if (placeholderResId != 0) {
+            return resources.getDrawable(placeholderResId);
+        }
+        GradientDrawable placeholder = new GradientDrawable();
+        placeholder.setColor(Color.TRANSPARENT);
+        placeholder.setSize(size, size);
+        return placeholder;
+    }
+
+    /**
+     * decode the resource so its larger edge is at most size, runs on the executor
+     */
+    private Bitmap decode(int resId, int size) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+        Bitmap bitmap;
+        if (options.outWidth > 0 && options.outHeight > 0) {
+            int sampleSize = 1;
+            while (Math.max(options.outWidth, options.outHeight) / (sampleSize * 2) >= size) {
+                sampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize;
+            bitmap = BitmapFactory.decodeResource(resources, resId, options);
+        } else {
+            // not a bitmap, e.g. a shape or vector drawable, render it at the icon size
+            Drawable drawable = resources.getDrawable(resId);
+            int width = drawable.getIntrinsicWidth() > 0 ? drawable.getIntrinsicWidth() : size;
+            int height = drawable.getIntrinsicHeight() > 0 ? drawable.getIntrinsicHeight() : size;
+            float scale = Math.min(1f, size / (float) Math.max(width, height));
+            width = Math.max(1, Math.round(width * scale));
+            height = Math.max(1, Math.round(height * scale));
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bitmap.setDensity(resources.getDisplayMetrics().densityDpi);
+            drawable.setBounds(0, 0, width, height);
+            drawable.draw(new Canvas(bitmap));
+            return bitmap;
+        }
+        if (bitmap == null) {
+            return null;
+        }
+        int edge = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (edge <= size) {
+            return bitmap;
+        }
+        float scale = size / (float) edge;
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        return scaled;
+    }
+
+    private int bucket(int size) {
+        if (size <= 0) {
+            size = iconSize;
+        }
+        return (size + SIZE_BUCKET_PX - 1) / SIZE_BUCKET_PX * SIZE_BUCKET_PX;
+    }
+
+    private long key(int resId, int size) {
+        return ((long) resId << 32) | ((long) (size & 0xffff) << 16) | (resources.getDisplayMetrics().densityDpi & 0xffff);
+    }
+
+    /**
+     * drop cached icons until they take at most maxBytes, least recently used first
+     */
+    private void trimTo(int maxBytes) {
+        for (Long key : cache.snapshot().keySet()) {
+            if (cache.size() <= maxBytes) {
+                return;
+            }
+            cache.remove(key);
+        }
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+
+    /**
+     * @return bytes the cached icons take
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    public int getMissCount() {
+        return cache.missCount();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            trimTo(cache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    public interface Callback {
+        /**
+         * @param bitmap the icon, null if it could not be decoded
+         */
+        void onIconLoaded(int resId, Bitmap bitmap);
+    }
+}
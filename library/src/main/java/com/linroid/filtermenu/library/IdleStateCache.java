@@ -0,0 +1,68 @@
+package com.linroid.filtermenu.library;
+
+import android.graphics.Bitmap;
+
+/**
+ * Bitmaps of the fully collapsed and fully expanded circles with their icon, so an idle
+ * {@link FilterMenuLayout} redraws with a single blit. Each bitmap is keyed by what it was rendered from,
+ * and shared through {@link SharedRenderResources} with other layouts rendering the same inputs.
+ */
+final class IdleStateCache {
+    private final Entry collapsed = new Entry();
+    private final Entry expanded = new Entry();
+
+    /**
+     * @return the cached bitmap, or null if neither this cache nor another layout has one for these inputs
+     */
+    Bitmap get(boolean isExpanded, int collapsedRadius, int expandedRadius, int primaryColor, int coreColor, float density) {
+        Entry entry = isExpanded ? expanded : collapsed;
+        if (entry.matches(collapsedRadius, expandedRadius, primaryColor, coreColor, density)) {
+            return entry.bitmap;
+        }
+        Bitmap shared = SharedRenderResources.getIdleBitmap(isExpanded, collapsedRadius, expandedRadius, primaryColor, coreColor, density);
+        if (shared != null) {
+            store(entry, shared, collapsedRadius, expandedRadius, primaryColor, coreColor, density);
+        }
+        return shared;
+    }
+
+    /**
+     * keep a newly rendered bitmap, it must not be drawn into anymore since other layouts may share it
+     */
+    void put(boolean isExpanded, Bitmap bitmap, int collapsedRadius, int expandedRadius, int primaryColor, int coreColor, float density) {
+        store(isExpanded ? expanded : collapsed, bitmap, collapsedRadius, expandedRadius, primaryColor, coreColor, density);
+        SharedRenderResources.putIdleBitmap(isExpanded, collapsedRadius, expandedRadius, primaryColor, coreColor, density, bitmap);
+    }
+
+    private static void store(Entry entry, Bitmap bitmap, int collapsedRadius, int expandedRadius, int primaryColor, int coreColor, float density) {
+        entry.bitmap = bitmap;
+        entry.collapsedRadius = collapsedRadius;
+        entry.expandedRadius = expandedRadius;
+        entry.primaryColor = primaryColor;
+        entry.coreColor = coreColor;
+        entry.density = density;
+    }
+
+    void clear() {
+        collapsed.bitmap = null;
+        expanded.bitmap = null;
+    }
+
+    private static class Entry {
+        Bitmap bitmap;
+        int collapsedRadius;
+        int expandedRadius;
+        int primaryColor;
+        int coreColor;
+        float density;
+
+        boolean matches(int collapsedRadius, int expandedRadius, int primaryColor, int coreColor, float density) {
+            return bitmap != null
+                    && this.collapsedRadius == collapsedRadius
+                    && this.expandedRadius == expandedRadius
+                    && this.primaryColor == primaryColor
+                    && this.coreColor == coreColor
+                    && this.density == density;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.linroid.filtermenu.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+/**
+ * Creates the item views of a lazy {@link FilterMenu} while the main thread is idle, so the first expand
+ * only has to add them to the layout.
+ * <p>
+ * Works like RecyclerView's GapWorker: each idle pass loads icons and inflates buttons until the next frame
+ * is due, at least one item and at most {@link #MAX_BUDGET_NANOS} per pass, then yields to the queue.
+ */
+final class ItemPrefetcher implements MessageQueue.IdleHandler {
+    /**
+     * longest an idle pass may run when no frame is pending *
+     */
+    static final long MAX_BUDGET_NANOS = 4000000L;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /**
+     * posted to leave the idle state, so the queue calls the next pass once it is idle again *
+     */
+    private final Runnable wakeUp = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+    private FilterMenu menu;
+    private long frameIntervalNanos;
+    private long lastFrameNanos;
+    private boolean running;
+
+    /**
+     * start prefetching the menu, must be called on the main thread
+     *
+     * @param frameIntervalNanos expected time between frames of the display, 0 if unknown
+     */
+    void start(FilterMenu menu, long frameIntervalNanos) {
+        this.menu = menu;
+        this.frameIntervalNanos = frameIntervalNanos;
+        if (!running) {
+            running = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    void cancel() {
+        menu = null;
+        if (running) {
+            running = false;
+            Looper.myQueue().removeIdleHandler(this);
+            handler.removeCallbacks(wakeUp);
+        }
+    }
+
+    /**
+     * the layout drew a frame, idle passes right after it must finish before the next one is due
+     */
+    void onFrameDrawn(long frameNanos) {
+        lastFrameNanos = frameNanos;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (menu == null || menu.isMaterialized()) {
+            menu = null;
+            running = false;
+            return false;
+        }
+        long now = System.nanoTime();
+        long deadline = now + MAX_BUDGET_NANOS;
+        if (frameIntervalNanos > 0) {
+            long nextFrame = lastFrameNanos + frameIntervalNanos;
+            if (nextFrame > now) {
+                deadline = Math.min(deadline, nextFrame);
+            }
+        }
+        if (menu.prefetch(deadline)) {
+            handler.post(wakeUp);
+            return true;
+        }
+        menu = null;
+        running = false;
+        return false;
+    }
+}
@@ -0,0 +1,137 @@
+package com.linroid.filtermenu.library;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.ImageButton;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps menu item buttons released by {@link FilterMenu#detach()} so later builders can reuse
+ * them instead of inflating {@code R.layout.menu_item} again, works like RecyclerView's RecycledViewPool.
+ * <p>
+ * Share one pool between the menus of a screen and call {@link #clear()} when the screen is destroyed,
+ * pooled views hold on to the context they were inflated with and are only handed out to builders
+ * using the same context. The pool is thread safe so builders can take views off the main thread.
+ */
+public class ItemViewPool {
+    public static final int DEFAULT_MAX_SIZE = 16;
+
+    /**
+     * ordered from least to most recently released *
+     */
+    private final List<ImageButton> views = new ArrayList<>();
+    private int maxSize;
+
+    private int hitCount;
+    private int missCount;
+    private int evictCount;
+
+    public ItemViewPool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public ItemViewPool(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * take the most recently released view inflated with this context
+     *
+     * @return null if the pool holds no such view, the caller should inflate one
+     */
+    public synchronized ImageButton acquire(Context ctx) {
+        for (int i = views.size() - 1; i >= 0; i--) {
+            if (views.get(i).getContext() == ctx) {
+                hitCount++;
+                return views.remove(i);
+            }
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * reset the view and keep it for reuse, evicts the least recently released view if the pool is full.
+     * Views which still have a parent are still shown somewhere and are not kept
+     */
+    public synchronized void release(ImageButton view) {
+        if (maxSize == 0 || view.getParent() != null || views.contains(view)) {
+            return;
+        }
+        reset(view);
+        views.add(view);
+        trimTo(maxSize);
+    }
+
+    /**
+     * clear everything a menu set on the view, so it shows nothing of its last item
+     */
+    void reset(ImageButton view) {
+        view.animate().cancel();
+        view.setImageDrawable(null);
+        view.setOnClickListener(null);
+        view.setTag(null);
+        view.setPressed(false);
+        view.setEnabled(true);
+        view.setContentDescription(null);
+        view.setAlpha(1f);
+        view.setScaleX(1f);
+        view.setScaleY(1f);
+        view.setTranslationX(0f);
+        view.setTranslationY(0f);
+        view.setRotation(0f);
+        view.setRotationX(0f);
+        view.setRotationY(0f);
+        view.setVisibility(View.VISIBLE);
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative");
+        }
+        this.maxSize = maxSize;
+        trimTo(maxSize);
+    }
+
+    public synchronized int size() {
+        return views.size();
+    }
+
+    /**
+     * drop all pooled views, does not count as evictions
+     */
+    public synchronized void clear() {
+        views.clear();
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int getEvictCount() {
+        return evictCount;
+    }
+
+    public synchronized void resetStats() {
+        hitCount = 0;
+        missCount = 0;
+        evictCount = 0;
+    }
+
+    private void trimTo(int size) {
+        while (views.size() > size) {
+            views.remove(0);
+            evictCount++;
+        }
+    }
+}
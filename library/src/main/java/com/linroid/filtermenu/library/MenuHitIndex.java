@@ -0,0 +1,61 @@
+package com.linroid.filtermenu.library;
+
+/**
+ * Polar lookup of the menu item under a touch point.
+ * <p>
+ * Items sit in equal slots of the arc between fromAngle and toAngle, so the slot of a point follows
+ * from its angle around the center, and the distance from the center rejects points outside the band
+ * the items occupy. Rebuilt only when the items are placed again.
+ */
+final class MenuHitIndex {
+    private int centerX;
+    private int centerY;
+    private double fromAngle;
+    private double sweep;
+    private int slotCount;
+    private float innerRadius;
+    private float outerRadius;
+
+    /**
+     * @param itemRadius radius of the arc item centers are placed on
+     * @param reach      how far from its center an item can still be hit
+     */
+    void rebuild(int centerX, int centerY, float itemRadius, double fromAngle, double toAngle, int slotCount, float reach) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.fromAngle = fromAngle;
+        this.sweep = toAngle - fromAngle;
+        this.slotCount = slotCount;
+        this.innerRadius = Math.max(0, itemRadius - reach);
+        this.outerRadius = itemRadius + reach;
+    }
+
+    void clear() {
+        slotCount = 0;
+    }
+
+    /**
+     * @return index of the slot containing the point, or -1 if the point is off the item band
+     */
+    int findSlot(int x, int y) {
+        if (slotCount == 0) {
+            return -1;
+        }
+        double dx = x - centerX;
+        double dy = y - centerY;
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        if (distance < innerRadius || distance > outerRadius) {
+            return -1;
+        }
+        double angle = Math.toDegrees(Math.atan2(dy, dx));
+        while (angle < fromAngle) {
+            angle += 360;
+        }
+        double offset = angle - fromAngle;
+        if (offset > sweep) {
+            // just past either end of the arc still belongs to the outermost slots
+            return offset - sweep < 360 - offset ? slotCount - 1 : 0;
+        }
+        return Math.min(slotCount - 1, (int) (offset / sweep * slotCount));
+    }
+}
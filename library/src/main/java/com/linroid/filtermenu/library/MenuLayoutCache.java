@@ -0,0 +1,154 @@
+package com.linroid.filtermenu.library;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Remembers the geometry inputs of the last {@link FilterMenuLayout} layout pass.
+ * <p>
+ * The computed positions themselves live in each {@link FilterMenu.Item}, so when the inputs
+ * match the last pass the layout can reuse them instead of placing the items again. When only some
+ * children were replaced, moved or resized, the miss reports which, so only their slots are placed again.
+ */
+final class MenuLayoutCache {
+    private boolean valid;
+    private int width, height;
+    private int paddingLeft, paddingTop, paddingRight, paddingBottom;
+    private int centerX, centerY;
+    private int collapsedRadius, expandedRadius;
+    private int childCount;
+    private View[] children = new View[0];
+    private int[] childWidths = new int[0];
+    private int[] childHeights = new int[0];
+
+    /**
+     * children that differ from the last pass, valid after a lookup missed. -1 if everything changed *
+     */
+    private int changedFrom;
+    private int changedTo;
+
+    private int hitCount;
+    private int missCount;
+
+    /**
+     * compare the current inputs with the last pass, and remember them on a miss
+     *
+     * @return true if item positions from the last pass are still valid
+     */
+    boolean lookup(ViewGroup parent, int centerX, int centerY, int collapsedRadius, int expandedRadius) {
+        if (!valid) {
+            changedFrom = -1;
+            changedTo = parent.getChildCount();
+        } else if (matches(parent, centerX, centerY, collapsedRadius, expandedRadius)) {
+            hitCount++;
+            return true;
+        }
+        missCount++;
+        store(parent, centerX, centerY, collapsedRadius, expandedRadius);
+        return false;
+    }
+
+    /**
+     * @return index of the first child that changed since the last pass, -1 if everything has to be placed again
+     */
+    int getChangedFrom() {
+        return changedFrom;
+    }
+
+    /**
+     * @return true if the last miss was not only about some children, e.g. the size, the center or the child
+     * count changed, so the whole menu has to be placed again
+     */
+    boolean isFullMiss() {
+        return changedFrom < 0;
+    }
+
+    /**
+     * @return index after the last child that changed since the last pass
+     */
+    int getChangedTo() {
+        return changedTo;
+    }
+
+    /**
+     * force the next lookup to miss
+     */
+    void invalidate() {
+        valid = false;
+    }
+
+    int getHitCount() {
+        return hitCount;
+    }
+
+    int getMissCount() {
+        return missCount;
+    }
+
+    void resetStats() {
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    private boolean matches(ViewGroup parent, int centerX, int centerY, int collapsedRadius, int expandedRadius) {
+        changedFrom = -1;
+        changedTo = parent.getChildCount();
+        if (width != parent.getWidth() || height != parent.getHeight()
+                || paddingLeft != parent.getPaddingLeft() || paddingTop != parent.getPaddingTop()
+                || paddingRight != parent.getPaddingRight() || paddingBottom != parent.getPaddingBottom()
+                || this.centerX != centerX || this.centerY != centerY
+                || this.collapsedRadius != collapsedRadius || this.expandedRadius != expandedRadius
+                || childCount != parent.getChildCount()) {
+            return false;
+        }
+        int from = -1;
+        int to = -1;
+        for (int i = 0; i < childCount; i++) {
+            View child = parent.getChildAt(i);
+            if (children[i] != child
+                    || childWidths[i] != child.getMeasuredWidth()
+                    || childHeights[i] != child.getMeasuredHeight()) {
+                if (from < 0) {
+                    from = i;
+                }
+                to = i + 1;
+            }
+        }
+        if (from < 0) {
+            return true;
+        }
+        changedFrom = from;
+        changedTo = to;
+        return false;
+    }
+
+    private void store(ViewGroup parent, int centerX, int centerY, int collapsedRadius, int expandedRadius) {
+        width = parent.getWidth();
+        height = parent.getHeight();
+        paddingLeft = parent.getPaddingLeft();
+        paddingTop = parent.getPaddingTop();
+        paddingRight = parent.getPaddingRight();
+        paddingBottom = parent.getPaddingBottom();
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.collapsedRadius = collapsedRadius;
+        this.expandedRadius = expandedRadius;
+        childCount = parent.getChildCount();
+        if (children.length < childCount) {
+            children = new View[childCount];
+            childWidths = new int[childCount];
+            childHeights = new int[childCount];
+        }
+        for (int i = 0; i < childCount; i++) {
+            View child = parent.getChildAt(i);
+            children[i] = child;
+            childWidths[i] = child.getMeasuredWidth();
+            childHeights[i] = child.getMeasuredHeight();
+        }
+        // drop references to views removed since the last pass
+        for (int i = childCount; i < children.length; i++) {
+            children[i] = null;
+        }
+        valid = true;
+    }
+}
@@ -0,0 +1,112 @@
+package com.linroid.filtermenu.library;
+
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.util.SparseArray;
+import android.view.InflateException;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reads the top level {@code <item>} tags of a menu resource straight from the xml,
+ * without building a {@link android.widget.PopupMenu}. Results are cached per resource id for the whole process,
+ * titles given as resources are kept as resource ids and resolved when items are built, so a configuration
+ * change such as a new locale shows them translated.
+ */
+final class MenuResourceParser {
+    private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+    private static final String TAG_MENU = "menu";
+    private static final String TAG_GROUP = "group";
+    private static final String TAG_ITEM = "item";
+
+    private static final SparseArray<List<FilterMenu.ItemInfo>> cache = new SparseArray<>();
+
+    private static final Comparator<FilterMenu.ItemInfo> ORDER_COMPARATOR = new Comparator<FilterMenu.ItemInfo>() {
+        @Override
+        public int compare(FilterMenu.ItemInfo a, FilterMenu.ItemInfo b) {
+            return a.getOrder() < b.getOrder() ? -1 : (a.getOrder() == b.getOrder() ? 0 : 1);
+        }
+    };
+
+    private MenuResourceParser() {
+    }
+
+    /**
+     * @return items sorted by {@code android:orderInCategory}, the list is shared and must not be modified
+     */
+    static List<FilterMenu.ItemInfo> parse(Resources res, int menuResId) {
+        synchronized (cache) {
+            List<FilterMenu.ItemInfo> items = cache.get(menuResId);
+            if (items != null) {
+                return items;
+            }
+        }
+        List<FilterMenu.ItemInfo> items = Collections.unmodifiableList(read(res, menuResId));
+        synchronized (cache) {
+            cache.put(menuResId, items);
+        }
+        return items;
+    }
+
+    static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static List<FilterMenu.ItemInfo> read(Resources res, int menuResId) {
+        List<FilterMenu.ItemInfo> items = new ArrayList<>();
+        XmlResourceParser parser = res.getXml(menuResId);
+        try {
+            // depth of the root <menu> is 1, its items are at 2, or 3 inside a <group>
+            boolean groupEnabled = true;
+            boolean groupVisible = true;
+            int eventType = parser.getEventType();
+            while (eventType != XmlPullParser.END_DOCUMENT) {
+                if (eventType == XmlPullParser.START_TAG) {
+                    String name = parser.getName();
+                    int depth = parser.getDepth();
+                    if (TAG_GROUP.equals(name) && depth == 2) {
+                        groupEnabled = parser.getAttributeBooleanValue(ANDROID_NS, "enabled", true);
+                        groupVisible = parser.getAttributeBooleanValue(ANDROID_NS, "visible", true);
+                    } else if (TAG_ITEM.equals(name) && (depth == 2 || depth == 3)) {
+                        items.add(readItem(parser, groupEnabled, groupVisible));
+                    } else if (!TAG_MENU.equals(name) && depth == 1) {
+                        throw new InflateException("Expecting menu, got " + name);
+                    }
+                } else if (eventType == XmlPullParser.END_TAG
+                        && TAG_GROUP.equals(parser.getName()) && parser.getDepth() == 2) {
+                    groupEnabled = true;
+                    groupVisible = true;
+                }
+                eventType = parser.next();
+            }
+        } catch (XmlPullParserException e) {
+            throw new InflateException("Error inflating menu XML", e);
+        } catch (IOException e) {
+            throw new InflateException("Error inflating menu XML", e);
+        } finally {
+            parser.close();
+        }
+        Collections.sort(items, ORDER_COMPARATOR);
+        return items;
+    }
+
+    private static FilterMenu.ItemInfo readItem(XmlResourceParser parser, boolean groupEnabled, boolean groupVisible) {
+        int id = parser.getAttributeResourceValue(ANDROID_NS, "id", 0);
+        int iconResId = parser.getAttributeResourceValue(ANDROID_NS, "icon", 0);
+        int titleResId = parser.getAttributeResourceValue(ANDROID_NS, "title", 0);
+        CharSequence title = titleResId != 0 ? null : parser.getAttributeValue(ANDROID_NS, "title");
+        int order = parser.getAttributeIntValue(ANDROID_NS, "orderInCategory", 0);
+        boolean enabled = groupEnabled && parser.getAttributeBooleanValue(ANDROID_NS, "enabled", true);
+        boolean visible = groupVisible && parser.getAttributeBooleanValue(ANDROID_NS, "visible", true);
+        return new FilterMenu.ItemInfo(id, iconResId, title, titleResId, order, enabled, visible);
+    }
+}
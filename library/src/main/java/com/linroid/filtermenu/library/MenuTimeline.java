@@ -0,0 +1,406 @@
+package com.linroid.filtermenu.library;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.View;
+
+/**
+ * Drives the expand and collapse animation of a {@link FilterMenuLayout} from one clock.
+ * <p>
+ * The circle progress, the core color and the alpha and scale of every item are tracks of one timeline,
+ * each with its own start offset, duration and easing. A single frame callback computes all of them, instead
+ * of an animator per property and item each scheduling its own pulse and boxing its values. Nothing is
+ * allocated per frame, and the timeline can be seeked to any play time whether it is running or not.
+ * <p>
+ * Each track keeps its own progress between collapsed and expanded and moves it towards the end the timeline
+ * plays to, so reversing a running animation turns every track around where it is.
+ */
+final class MenuTimeline {
+    /**
+     * frame interval used before JELLY_BEAN, where there is no Choreographer *
+     */
+    private static final long FALLBACK_FRAME_MILLIS = 16;
+    /**
+     * tension of the expanding circle's overshoot, OvershootInterpolator's default *
+     */
+    private static final float OVERSHOOT_TENSION = 2f;
+
+    private final Host host;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /**
+     * a Choreographer.FrameCallback on JELLY_BEAN and later, so the class loads on older versions *
+     */
+    private Object frameCallback;
+    private final Runnable frameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            doFrame(System.nanoTime());
+        }
+    };
+
+    private final StaggerScheduler scheduler;
+
+    private int collapsedColor;
+    private int expandedColor;
+    /**
+     * progress of the circle track, 0 collapsed and 1 expanded, before easing *
+     */
+    private float circleValue;
+    /**
+     * circle track value and expand progress where the track last turned around, its easing runs from there *
+     */
+    private float circleTurnValue = 1f;
+    private float circleTurnProgress = 1f;
+    /**
+     * progress of each item track, by item index *
+     */
+    private float[] itemValues = new float[8];
+
+    /**
+     * the direction the tracks move in, true towards expanded *
+     */
+    private boolean forward;
+    private boolean running;
+    /**
+     * frame time of the last direction change, the item delays count from it. -1 until the next frame *
+     */
+    private long toggleNanos = -1;
+    /**
+     * frame time of the last applied frame, -1 before the first frame of a run *
+     */
+    private long lastFrameNanos = -1;
+
+    /**
+     * @param scheduler how long each track runs from one end to the other, and when the item tracks start
+     */
+    MenuTimeline(Host host, StaggerScheduler scheduler) {
+        this.host = host;
+        this.scheduler = scheduler;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            frameCallback = new FrameCallback(this);
+        }
+    }
+
+    /**
+     * colors of the inner circle at both ends of the circle track
+     */
+    void setColors(int collapsedColor, int expandedColor) {
+        this.collapsedColor = collapsedColor;
+        this.expandedColor = expandedColor;
+    }
+
+    /**
+     * @return how long a run from one end to the other takes, until the last item track ends
+     */
+    long getDuration() {
+        return scheduler.getTotalDuration(host.getItemCount());
+    }
+
+    /**
+     * move every track towards expanded or collapsed, from wherever it is. A run in the other direction
+     * turns around in place, a run in the same direction just continues, so toggling costs the same however
+     * often it happens. Item tracks still at their start wait as the {@link StaggerScheduler} says, in item
+     * order when expanding and the last item first when collapsing, the others turn around right away
+     */
+    void play(boolean expand) {
+        if (running && forward == expand) {
+            return;
+        }
+        if (forward != expand) {
+            circleTurnProgress = circleProgress();
+            circleTurnValue = circleValue;
+        }
+        forward = expand;
+        // turn around at the last frame, so the next one continues smoothly
+        toggleNanos = running ? lastFrameNanos : -1;
+        if (!running) {
+            running = true;
+            lastFrameNanos = -1;
+            postFrame();
+        }
+    }
+
+    /**
+     * stop where it is, without applying anything more
+     */
+    void cancel() {
+        if (running) {
+            running = false;
+            if (frameCallback != null) {
+                removeFrameCallback();
+            } else {
+                handler.removeCallbacks(frameRunnable);
+            }
+        }
+    }
+
+    /**
+     * stop and jump every track to the end, applying it right away
+     */
+    void jumpTo(boolean expanded) {
+        cancel();
+        forward = expanded;
+        resetCircleTurn();
+        int count = ensureItemCapacity();
+        float value = expanded ? 1f : 0f;
+        circleValue = value;
+        for (int i = 0; i < count; i++) {
+            itemValues[i] = value;
+        }
+        applyAll(count);
+    }
+
+    /**
+     * stop and forget the progress of every track without applying anything, the caller resets the views
+     */
+    void reset() {
+        cancel();
+        forward = false;
+        resetCircleTurn();
+        circleValue = 0;
+        for (int i = 0; i < itemValues.length; i++) {
+            itemValues[i] = 0;
+        }
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return progress of the item's track, 0 collapsed and 1 expanded, before easing
+     */
+    float getItemProgress(int index) {
+        return index < itemValues.length ? itemValues[index] : (forward ? 1f : 0f);
+    }
+
+    /**
+     * @return true if the tracks move or last moved towards expanded
+     */
+    boolean isForward() {
+        return forward;
+    }
+
+    /**
+     * set every track to where it would be at a play time of a run in the current direction that started
+     * at the other end, and apply it. A running timeline continues from there
+     *
+     * @param fraction of {@link #getDuration()}
+     */
+    void seekFraction(float fraction) {
+        long time = (long) (getDuration() * Math.max(0f, Math.min(1f, fraction)));
+        int count = ensureItemCapacity();
+        resetCircleTurn();
+        circleValue = valueAt(time, 0);
+        for (int i = 0; i < count; i++) {
+            itemValues[i] = valueAt(time, delay(i, count));
+        }
+        // delays count from when that run would have started
+        toggleNanos = running ? lastFrameNanos - time * 1000000L : -1;
+        applyAll(count);
+    }
+
+    /**
+     * let the circle track ease from the other end, like a run that was not turned around
+     */
+    private void resetCircleTurn() {
+        circleTurnValue = forward ? 0f : 1f;
+        circleTurnProgress = circleTurnValue;
+    }
+
+    /**
+     * @return expand progress of the circle. Expanding overshoots 1 before it settles, collapsing eases
+     * straight down to 0 without passing either end. Both run from where the track turned around, so
+     * reversing doesn't jump
+     */
+    private float circleProgress() {
+        if (forward) {
+            if (circleTurnValue >= 1f) {
+                return 1f;
+            }
+            float fraction = Math.max(0f, (circleValue - circleTurnValue) / (1f - circleTurnValue));
+            return circleTurnProgress + (1f - circleTurnProgress) * overshoot(fraction);
+        }
+        if (circleTurnValue <= 0f) {
+            return 0f;
+        }
+        return circleTurnProgress * accelerateDecelerate(Math.min(1f, circleValue / circleTurnValue));
+    }
+
+    /**
+     * the curve of OvershootInterpolator, computed here so the timeline is plain java
+     */
+    static float overshoot(float t) {
+        t -= 1f;
+        return t * t * ((OVERSHOOT_TENSION + 1) * t + OVERSHOOT_TENSION) + 1f;
+    }
+
+    /**
+     * the curve of AccelerateDecelerateInterpolator
+     */
+    static float accelerateDecelerate(float t) {
+        return (float) (Math.cos((t + 1) * Math.PI) / 2.0) + .5f;
+    }
+
+    private float valueAt(long time, long delay) {
+        float fraction = time <= delay ? 0f : Math.min(1f, (time - delay) / (float) scheduler.getTrackDuration());
+        return forward ? fraction : 1f - fraction;
+    }
+
+    /**
+     * @return how long after a direction change the track of the item starts moving
+     */
+    private long delay(int index, int count) {
+        int order = forward ? index : count - 1 - index;
+        return scheduler.getDelay(order, index, count);
+    }
+
+    /**
+     * advance every track to the frame time, called by the frame callback
+     */
+    void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (toggleNanos < 0) {
+            toggleNanos = frameTimeNanos;
+        }
+        float step = lastFrameNanos < 0 ? 0f : (frameTimeNanos - lastFrameNanos) / 1000000f / scheduler.getTrackDuration();
+        lastFrameNanos = frameTimeNanos;
+        long sinceToggle = (frameTimeNanos - toggleNanos) / 1000000L;
+        float target = forward ? 1f : 0f;
+        boolean moving = false;
+
+        if (circleValue != target) {
+            circleValue = approach(circleValue, target, step);
+            applyCircle();
+            moving |= circleValue != target;
+        }
+        int count = ensureItemCapacity();
+        for (int i = 0; i < count; i++) {
+            float value = itemValues[i];
+            if (value == target) {
+                continue;
+            }
+            moving = true;
+            // a track already under way turns around at once, only the ones still at the start wait their turn
+            if (value == (forward ? 0f : 1f) && sinceToggle < delay(i, count)) {
+                continue;
+            }
+            itemValues[i] = approach(value, target, step);
+            applyItem(i);
+        }
+        if (moving) {
+            postFrame();
+        } else {
+            running = false;
+            host.onTimelineFinished(forward);
+        }
+    }
+
+    private static float approach(float value, float target, float step) {
+        return value < target ? Math.min(target, value + step) : Math.max(target, value - step);
+    }
+
+    /**
+     * grow the item tracks to the item count, new items start at the end the tracks move to
+     *
+     * @return the item count
+     */
+    private int ensureItemCapacity() {
+        int count = host.getItemCount();
+        if (itemValues.length < count) {
+            float[] grown = new float[Math.max(count, itemValues.length * 2)];
+            System.arraycopy(itemValues, 0, grown, 0, itemValues.length);
+            for (int i = itemValues.length; i < grown.length; i++) {
+                grown[i] = forward ? 1f : 0f;
+            }
+            itemValues = grown;
+        }
+        return count;
+    }
+
+    private void applyAll(int count) {
+        applyCircle();
+        for (int i = 0; i < count; i++) {
+            applyItem(i);
+        }
+    }
+
+    private void applyCircle() {
+        host.setExpandProgress(circleProgress());
+        host.setCoreColor(blendArgb(collapsedColor, expandedColor, accelerateDecelerate(circleValue)));
+    }
+
+    private void applyItem(int index) {
+        float value = accelerateDecelerate(itemValues[index]);
+        View view = host.getItemView(index);
+        view.setAlpha(value);
+        view.setScaleX(value);
+        view.setScaleY(value);
+    }
+
+    /**
+     * blend each channel, like ArgbEvaluator but without boxing the result
+     */
+    static int blendArgb(int from, int to, float fraction) {
+        int a = (from >>> 24) + (int) (((to >>> 24) - (from >>> 24)) * fraction);
+        int r = ((from >> 16) & 0xff) + (int) ((((to >> 16) & 0xff) - ((from >> 16) & 0xff)) * fraction);
+        int g = ((from >> 8) & 0xff) + (int) ((((to >> 8) & 0xff) - ((from >> 8) & 0xff)) * fraction);
+        int b = (from & 0xff) + (int) (((to & 0xff) - (from & 0xff)) * fraction);
+        return a << 24 | r << 16 | g << 8 | b;
+    }
+
+    private void postFrame() {
+        if (frameCallback != null) {
+            postFrameCallback();
+        } else {
+            handler.postDelayed(frameRunnable, FALLBACK_FRAME_MILLIS);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) frameCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeFrameCallback() {
+        Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) frameCallback);
+    }
+
+    /**
+     * what the timeline animates, {@link FilterMenuLayout} applies it to its circle and item views
+     */
+    interface Host {
+        int getItemCount();
+
+        View getItemView(int index);
+
+        void setExpandProgress(float progress);
+
+        void setCoreColor(int color);
+
+        /**
+         * the tracks reached the end the timeline played to
+         */
+        void onTimelineFinished(boolean expanded);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class FrameCallback implements Choreographer.FrameCallback {
+        private final MenuTimeline timeline;
+
+        FrameCallback(MenuTimeline timeline) {
+            this.timeline = timeline;
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            timeline.doFrame(frameTimeNanos);
+        }
+    }
+}
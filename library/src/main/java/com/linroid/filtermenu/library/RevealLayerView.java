@@ -0,0 +1,89 @@
+package com.linroid.filtermenu.library;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.view.View;
+
+/**
+ * A circle, optionally with the menu icon on top, recorded once and then animated only through
+ * view properties (scale, alpha), so {@link FilterMenuLayout#ANIMATION_MODE_RENDER_THREAD} can
+ * run the reveal without calling onDraw every frame.
+ */
+final class RevealLayerView extends View {
+    private final Paint paint;
+    /**
+     * null for the expanding disc, which has no icon *
+     */
+    private final FilterMenuDrawable icon;
+    private int radius;
+
+    RevealLayerView(Context ctx, boolean withIcon, float iconProgress) {
+        super(ctx);
+        paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.FILL);
+        if (withIcon) {
+            icon = new FilterMenuDrawable(ctx, Color.WHITE, 0);
+            icon.setExpandProgress(iconProgress);
+        } else {
+            icon = null;
+        }
+    }
+
+    /**
+     * @param radius     radius of the circle, the view is sized to fit it
+     * @param color      fill color of the circle
+     * @param iconRadius radius the icon is sized against, same as the collapsed circle
+     */
+    void setCircle(int radius, int color, int iconRadius) {
+        boolean resized = this.radius != radius;
+        this.radius = radius;
+        paint.setColor(color);
+        if (icon != null) {
+            icon.setRadius(iconRadius);
+            updateIconBounds();
+        }
+        if (resized) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(radius * 2, radius * 2);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        setPivotX(w / 2f);
+        setPivotY(h / 2f);
+        if (icon != null) {
+            updateIconBounds();
+        }
+    }
+
+    private void updateIconBounds() {
+        int cx = getWidth() / 2;
+        int cy = getHeight() / 2;
+        icon.setBounds(cx - icon.getIntrinsicWidth() / 2,
+                cy - icon.getIntrinsicHeight() / 2,
+                cx + icon.getIntrinsicWidth() / 2,
+                cy + icon.getIntrinsicHeight() / 2);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        canvas.drawCircle(radius, radius, radius, paint);
+        if (icon != null) {
+            icon.draw(canvas);
+        }
+    }
+
+    @Override
+    public boolean hasOverlappingRendering() {
+        return icon != null;
+    }
+}
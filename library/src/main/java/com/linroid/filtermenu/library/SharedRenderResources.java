@@ -0,0 +1,97 @@
+package com.linroid.filtermenu.library;
+
+import android.animation.TimeInterpolator;
+import android.graphics.Bitmap;
+import android.view.animation.OvershootInterpolator;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Render resources shared by all {@link FilterMenuLayout} instances of the process.
+ * <p>
+ * Only immutable objects are shared: stateless animation helpers, and the pre-rasterized idle state bitmaps,
+ * which are never drawn into again once rendered. Bitmaps are weakly referenced, a bitmap lives as long as
+ * some layout's {@link IdleStateCache} holds it. Paints and animators stay per instance, they change while animating.
+ */
+final class SharedRenderResources {
+    static final TimeInterpolator OVERSHOOT_INTERPOLATOR = new OvershootInterpolator();
+
+    private static final Map<Key, WeakReference<Bitmap>> idleBitmaps = new HashMap<>();
+    /**
+     * reused for lookups so a hit allocates nothing *
+     */
+    private static final Key lookupKey = new Key();
+
+    private SharedRenderResources() {
+    }
+
+    static synchronized Bitmap getIdleBitmap(boolean expanded, int collapsedRadius, int expandedRadius,
+                                             int primaryColor, int coreColor, float density) {
+        lookupKey.set(expanded, collapsedRadius, expandedRadius, primaryColor, coreColor, density);
+        WeakReference<Bitmap> ref = idleBitmaps.get(lookupKey);
+        return ref != null ? ref.get() : null;
+    }
+
+    static synchronized void putIdleBitmap(boolean expanded, int collapsedRadius, int expandedRadius,
+                                           int primaryColor, int coreColor, float density, Bitmap bitmap) {
+        // drop entries whose bitmaps are no longer used by any layout
+        Iterator<WeakReference<Bitmap>> iterator = idleBitmaps.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+        Key key = new Key();
+        key.set(expanded, collapsedRadius, expandedRadius, primaryColor, coreColor, density);
+        idleBitmaps.put(key, new WeakReference<>(bitmap));
+    }
+
+    private static final class Key {
+        boolean expanded;
+        int collapsedRadius;
+        int expandedRadius;
+        int primaryColor;
+        int coreColor;
+        float density;
+
+        void set(boolean expanded, int collapsedRadius, int expandedRadius, int primaryColor, int coreColor, float density) {
+            this.expanded = expanded;
+            this.collapsedRadius = collapsedRadius;
+            this.expandedRadius = expandedRadius;
+            this.primaryColor = primaryColor;
+            this.coreColor = coreColor;
+            this.density = density;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return expanded == key.expanded
+                    && collapsedRadius == key.collapsedRadius
+                    && expandedRadius == key.expandedRadius
+                    && primaryColor == key.primaryColor
+                    && coreColor == key.coreColor
+                    && Float.compare(density, key.density) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = expanded ? 1 : 0;
+            result = 31 * result + collapsedRadius;
+            result = 31 * result + expandedRadius;
+            result = 31 * result + primaryColor;
+            result = 31 * result + coreColor;
+            result = 31 * result + Float.floatToIntBits(density);
+            return result;
+        }
+    }
+}
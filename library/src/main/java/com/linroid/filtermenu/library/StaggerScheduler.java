@@ -0,0 +1,128 @@
+package com.linroid.filtermenu.library;
+
+/**
+ * When each item of an expand or collapse starts animating, and for how long.
+ * <p>
+ * Items start one stagger after another, the span from the first to the last start follows a curve. A total
+ * duration budget caps the whole animation however many items there are: the span shrinks to fit, and the
+ * items' own duration too if the budget is shorter than it. Delays are computed per item on demand, nothing
+ * is precomputed per toggle.
+ */
+final class StaggerScheduler {
+    private int itemDuration;
+    private int stagger;
+    private int maxDuration;
+    private int curve = FilterMenuLayout.STAGGER_LINEAR;
+
+    /**
+     * angle the radial curve measures from, NaN if there was no touch *
+     */
+    private double originAngle = Double.NaN;
+    private double fromAngle;
+    private double sweep = 360;
+
+    StaggerScheduler(int itemDuration, int stagger) {
+        this.itemDuration = itemDuration;
+        this.stagger = stagger;
+    }
+
+    int getItemDuration() {
+        return itemDuration;
+    }
+
+    void setItemDuration(int itemDuration) {
+        this.itemDuration = Math.max(1, itemDuration);
+    }
+
+    int getStagger() {
+        return stagger;
+    }
+
+    void setStagger(int stagger) {
+        this.stagger = Math.max(0, stagger);
+    }
+
+    int getMaxDuration() {
+        return maxDuration;
+    }
+
+    /**
+     * @param maxDuration longest the whole animation may take, 0 for no limit
+     */
+    void setMaxDuration(int maxDuration) {
+        this.maxDuration = Math.max(0, maxDuration);
+    }
+
+    int getCurve() {
+        return curve;
+    }
+
+    void setCurve(int curve) {
+        this.curve = curve;
+    }
+
+    /**
+     * the arc the items are placed on, the radial curve needs their angles
+     */
+    void setArc(double fromAngle, double toAngle) {
+        this.fromAngle = fromAngle;
+        this.sweep = toAngle - fromAngle;
+    }
+
+    /**
+     * @param angle angle of the touch that started the animation around the circle center, NaN if none
+     */
+    void setOrigin(double angle) {
+        this.originAngle = angle;
+    }
+
+    /**
+     * @return how long each track runs, at most the budget
+     */
+    long getTrackDuration() {
+        return maxDuration > 0 ? Math.min(itemDuration, maxDuration) : itemDuration;
+    }
+
+    /**
+     * @return time from the first item's start to the last one's
+     */
+    long getSpan(int count) {
+        long span = (long) stagger * count;
+        if (maxDuration > 0) {
+            span = Math.min(span, maxDuration - getTrackDuration());
+        }
+        return span;
+    }
+
+    /**
+     * @return the whole animation, until the last item track ends
+     */
+    long getTotalDuration(int count) {
+        return getSpan(count) + getTrackDuration();
+    }
+
+    /**
+     * @param order position of the item in the order items start in, 0 starts first
+     * @param index index of the item on the arc, the radial curve starts the items closest to the touch first
+     * @return how long after the animation starts the item starts
+     */
+    long getDelay(int order, int index, int count) {
+        double x = (order + 1) / (double) count;
+        switch (curve) {
+            case FilterMenuLayout.STAGGER_EASE_OUT:
+                // inverse of an ease out, most items start early and the gaps grow towards the last one
+                x = 1 - Math.sqrt(1 - x);
+                break;
+            case FilterMenuLayout.STAGGER_RADIAL:
+                if (!Double.isNaN(originAngle)) {
+                    double angle = fromAngle + sweep * (index + .5) / count;
+                    double distance = Math.abs((angle - originAngle) % 360);
+                    x = Math.min(distance, 360 - distance) / 180;
+                }
+                break;
+            default:
+                break;
+        }
+        return (long) (getSpan(count) * x);
+    }
+}
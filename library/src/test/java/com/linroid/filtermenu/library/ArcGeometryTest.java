@@ -0,0 +1,127 @@
+package com.linroid.filtermenu.library;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ArcGeometryTest {
+    private static final double DELTA = 1e-3;
+
+    private ArcGeometry geometry;
+    private final float[] out = new float[2];
+
+    @Before
+    public void setUp() {
+        geometry = new ArcGeometry();
+        geometry.setBounds(0, 0, 1000, 1000);
+        geometry.setRadius(100);
+    }
+
+    @Test
+    public void circleInsideBoundsUsesWholeCircle() {
+        geometry.setCenter(500, 500);
+        geometry.clipArc();
+
+        assertEquals(360, geometry.getToAngle() - geometry.getFromAngle(), DELTA);
+    }
+
+    @Test
+    public void itemsSitInTheMiddleOfEqualSlots() {
+        geometry.setCenter(500, 500);
+        geometry.clipArc();
+        double from = geometry.getFromAngle();
+
+        for (int i = 0; i < 4; i++) {
+            geometry.calculateItemPosition(i, 4, 100, out);
+            double radian = Math.toRadians(from + 90 * i + 45);
+            assertEquals(500 + 100 * Math.cos(radian), out[0], DELTA);
+            assertEquals(500 + 100 * Math.sin(radian), out[1], DELTA);
+        }
+    }
+
+    @Test
+    public void circleOnCornerKeepsTheQuarterInsideBounds() {
+        geometry.setCenter(0, 0);
+        geometry.clipArc();
+
+        assertAngle(0, geometry.getFromAngle());
+        assertEquals(90, geometry.getToAngle() - geometry.getFromAngle(), DELTA);
+        // one item lands on the diagonal
+        geometry.calculateItemPosition(0, 1, 80, out);
+        assertEquals(80 * Math.cos(Math.PI / 4), out[0], DELTA);
+        assertEquals(80 * Math.sin(Math.PI / 4), out[1], DELTA);
+    }
+
+    @Test
+    public void circleOnEdgeKeepsTheHalfInsideBounds() {
+        geometry.setCenter(0, 500);
+        geometry.clipArc();
+
+        assertEquals(180, geometry.getToAngle() - geometry.getFromAngle(), DELTA);
+        geometry.calculateItemPosition(0, 1, 100, out);
+        assertEquals(100, out[0], DELTA);
+        assertEquals(500, out[1], DELTA);
+    }
+
+    @Test
+    public void slotsSpanFromStartToEndAngle() {
+        geometry.setCenter(0, 0);
+        geometry.clipArc();
+
+        geometry.calculateSlotPosition(0, 3, 100, out);
+        assertEquals(100, out[0], DELTA);
+        assertEquals(0, out[1], DELTA);
+        geometry.calculateSlotPosition(3, 3, 100, out);
+        assertEquals(0, out[0], DELTA);
+        assertEquals(100, out[1], DELTA);
+    }
+
+    @Test
+    public void fractionalSlotsOutsideTheArcExtrapolate() {
+        geometry.setCenter(0, 0);
+        geometry.clipArc();
+
+        // half a slot of 30 degrees before the start
+        geometry.calculateSlotPosition(-.5, 3, 100, out);
+        assertEquals(100 * Math.cos(Math.toRadians(-15)), out[0], DELTA);
+        assertEquals(100 * Math.sin(Math.toRadians(-15)), out[1], DELTA);
+    }
+
+    @Test
+    public void exclusionShrinksTheArc() {
+        geometry.setCenter(0, 0);
+        // hides the circle below y = 60, from about 37 degrees on
+        geometry.addExclusion(0, 60, 200, 200);
+        geometry.clipArc();
+
+        assertAngle(0, geometry.getFromAngle());
+        assertAngle(Math.toDegrees(Math.asin(.6)), geometry.getToAngle());
+    }
+
+    @Test
+    public void visibleArcIsReported() {
+        geometry.setCenter(0, 0);
+
+        assertTrue(geometry.clipArc());
+    }
+
+    @Test
+    public void fullyExcludedCircleFallsBackToTheBounds() {
+        geometry.setCenter(0, 0);
+        geometry.addExclusion(0, 0, 1000, 1000);
+
+        assertFalse(geometry.clipArc());
+        assertAngle(0, geometry.getFromAngle());
+        assertEquals(90, geometry.getToAngle() - geometry.getFromAngle(), DELTA);
+    }
+
+    /**
+     * angles are equal if they point the same way
+     */
+    private static void assertAngle(double expected, double actual) {
+        assertEquals(0, ((actual - expected) % 360 + 540) % 360 - 180, DELTA);
+    }
+}
@@ -0,0 +1,118 @@
+package com.linroid.filtermenu.library;
+
+import android.widget.ImageButton;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ItemViewPoolTest {
+    private ItemViewPool pool;
+    private final ImageButton a = new ImageButton(null);
+    private final ImageButton b = new ImageButton(null);
+    private final ImageButton c = new ImageButton(null);
+
+    @Before
+    public void setUp() {
+        pool = newPool(2);
+    }
+
+    @Test
+    public void emptyPoolMisses() {
+        assertNull(pool.acquire(null));
+        assertEquals(1, pool.getMissCount());
+        assertEquals(0, pool.getHitCount());
+    }
+
+    @Test
+    public void mostRecentlyReleasedViewComesFirst() {
+        pool.release(a);
+        pool.release(b);
+
+        assertSame(b, pool.acquire(null));
+        assertSame(a, pool.acquire(null));
+        assertNull(pool.acquire(null));
+        assertEquals(2, pool.getHitCount());
+    }
+
+    @Test
+    public void releasingTwiceKeepsOneCopy() {
+        pool.release(a);
+        pool.release(a);
+
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void fullPoolEvictsLeastRecentlyReleased() {
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+
+        assertEquals(2, pool.size());
+        assertEquals(1, pool.getEvictCount());
+        assertSame(c, pool.acquire(null));
+        assertSame(b, pool.acquire(null));
+        assertNull(pool.acquire(null));
+    }
+
+    @Test
+    public void shrinkingEvictsOldestViews() {
+        pool.release(a);
+        pool.release(b);
+        pool.setMaxSize(1);
+
+        assertEquals(1, pool.getEvictCount());
+        assertSame(b, pool.acquire(null));
+    }
+
+    @Test
+    public void zeroSizedPoolKeepsNothing() {
+        pool.setMaxSize(0);
+        pool.release(a);
+
+        assertEquals(0, pool.size());
+        assertEquals(0, pool.getEvictCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSizeIsRejected() {
+        pool.setMaxSize(-1);
+    }
+
+    @Test
+    public void clearIsNoEviction() {
+        pool.release(a);
+        pool.clear();
+
+        assertEquals(0, pool.size());
+        assertEquals(0, pool.getEvictCount());
+    }
+
+    @Test
+    public void resetStatsClearsCounters() {
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+        pool.acquire(null);
+        pool.resetStats();
+
+        assertEquals(0, pool.getHitCount());
+        assertEquals(0, pool.getMissCount());
+        assertEquals(0, pool.getEvictCount());
+    }
+
+    /**
+     * views of the stubbed framework have no animator to cancel, only the pooling is tested
+     */
+    private static ItemViewPool newPool(int maxSize) {
+        return new ItemViewPool(maxSize) {
+            @Override
+            void reset(ImageButton view) {
+            }
+        };
+    }
+}
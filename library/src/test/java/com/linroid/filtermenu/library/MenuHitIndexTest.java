@@ -0,0 +1,71 @@
+package com.linroid.filtermenu.library;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MenuHitIndexTest {
+    private static final int CENTER_X = 500;
+    private static final int CENTER_Y = 500;
+
+    private MenuHitIndex index;
+
+    @Before
+    public void setUp() {
+        index = new MenuHitIndex();
+        index.rebuild(CENTER_X, CENTER_Y, 100, 0, 90, 3, 20);
+    }
+
+    @Test
+    public void itemCentersHitTheirSlots() {
+        assertEquals(0, find(15, 100));
+        assertEquals(1, find(45, 100));
+        assertEquals(2, find(75, 100));
+    }
+
+    @Test
+    public void pointsOffTheBandMiss() {
+        assertEquals(-1, find(45, 70));
+        assertEquals(-1, find(45, 130));
+        assertEquals(-1, index.findSlot(CENTER_X, CENTER_Y));
+    }
+
+    @Test
+    public void pointsWithinReachHit() {
+        assertEquals(1, find(45, 85));
+        assertEquals(1, find(45, 115));
+    }
+
+    @Test
+    public void pointsJustPastTheArcBelongToTheOutermostSlots() {
+        assertEquals(2, find(95, 100));
+        assertEquals(0, find(-5, 100));
+    }
+
+    @Test
+    public void arcAcrossZeroDegrees() {
+        index.rebuild(CENTER_X, CENTER_Y, 100, 300, 420, 4, 20);
+
+        assertEquals(0, find(310, 100));
+        assertEquals(1, find(350, 100));
+        assertEquals(2, find(10, 100));
+        assertEquals(3, find(50, 100));
+    }
+
+    @Test
+    public void clearedIndexFindsNothing() {
+        index.clear();
+
+        assertEquals(-1, find(45, 100));
+    }
+
+    /**
+     * @param degrees angle of the point around the center, clockwise since y grows downwards
+     */
+    private int find(double degrees, double distance) {
+        double radian = Math.toRadians(degrees);
+        return index.findSlot((int) Math.round(CENTER_X + distance * Math.cos(radian)),
+                (int) Math.round(CENTER_Y + distance * Math.sin(radian)));
+    }
+}
@@ -0,0 +1,146 @@
+package com.linroid.filtermenu.library;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MenuLayoutCacheTest {
+    private MenuLayoutCache cache;
+    private FakeParent parent;
+
+    @Before
+    public void setUp() {
+        cache = new MenuLayoutCache();
+        parent = new FakeParent();
+        for (int i = 0; i < 5; i++) {
+            parent.children.add(new View(null));
+        }
+    }
+
+    @Test
+    public void firstLookupPlacesEverything() {
+        assertFalse(lookup(100, 100));
+        assertTrue(cache.isFullMiss());
+        assertEquals(5, cache.getChangedTo());
+    }
+
+    @Test
+    public void unchangedInputsHit() {
+        lookup(100, 100);
+
+        assertTrue(lookup(100, 100));
+        assertTrue(lookup(100, 100));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void movedCenterPlacesEverything() {
+        lookup(100, 100);
+
+        assertFalse(lookup(100, 120));
+        assertTrue(cache.isFullMiss());
+        assertEquals(5, cache.getChangedTo());
+        assertTrue(lookup(100, 120));
+    }
+
+    @Test
+    public void changedRadiusMisses() {
+        lookup(100, 100);
+
+        assertFalse(cache.lookup(parent, 100, 100, 30, 200));
+        assertTrue(cache.isFullMiss());
+    }
+
+    @Test
+    public void replacedChildrenReportTheirRange() {
+        lookup(100, 100);
+        parent.children.set(1, new View(null));
+        parent.children.set(3, new View(null));
+
+        assertFalse(lookup(100, 100));
+        assertFalse(cache.isFullMiss());
+        assertEquals(1, cache.getChangedFrom());
+        assertEquals(4, cache.getChangedTo());
+        assertTrue(lookup(100, 100));
+    }
+
+    @Test
+    public void replacedFirstChildIsNotAFullMiss() {
+        lookup(100, 100);
+        parent.children.set(0, new View(null));
+
+        assertFalse(lookup(100, 100));
+        assertFalse(cache.isFullMiss());
+        assertEquals(0, cache.getChangedFrom());
+        assertEquals(1, cache.getChangedTo());
+    }
+
+    @Test
+    public void addedChildPlacesEverything() {
+        lookup(100, 100);
+        parent.children.add(new View(null));
+
+        assertFalse(lookup(100, 100));
+        assertTrue(cache.isFullMiss());
+        assertEquals(6, cache.getChangedTo());
+    }
+
+    @Test
+    public void invalidateForcesAMiss() {
+        lookup(100, 100);
+        cache.invalidate();
+
+        assertFalse(lookup(100, 100));
+        assertTrue(cache.isFullMiss());
+        assertEquals(5, cache.getChangedTo());
+    }
+
+    @Test
+    public void resetStatsClearsCounters() {
+        lookup(100, 100);
+        lookup(100, 100);
+        cache.resetStats();
+
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    private boolean lookup(int centerX, int centerY) {
+        return cache.lookup(parent, centerX, centerY, 30, 150);
+    }
+
+    /**
+     * a parent whose children are a plain list
+     */
+    private static class FakeParent extends ViewGroup {
+        final List<View> children = new ArrayList<>();
+
+        FakeParent() {
+            super(null);
+        }
+
+        @Override
+        public int getChildCount() {
+            return children.size();
+        }
+
+        @Override
+        public View getChildAt(int index) {
+            return children.get(index);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.linroid.filtermenu.library;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MenuTimelineTest {
+    private static final float DELTA = 1e-4f;
+    /**
+     * frame times start well after 0, like the uptime based ones of a device *
+     */
+    private static final long BASE_MILLIS = 10000;
+
+    private MenuTimeline timeline;
+    private FakeHost host;
+
+    @Before
+    public void setUp() {
+        host = new FakeHost(3);
+        // tracks of 100ms, the item tracks start 10ms apart from 10ms on, 130ms in total
+        timeline = new MenuTimeline(host, new StaggerScheduler(100, 10));
+    }
+
+    @Test
+    public void jumpToAppliesTheEnd() {
+        timeline.jumpTo(true);
+
+        assertFalse(timeline.isRunning());
+        assertEquals(1f, host.progress, DELTA);
+        assertEquals(1f, timeline.getItemProgress(2), DELTA);
+
+        timeline.jumpTo(false);
+
+        assertEquals(0f, host.progress, DELTA);
+        assertEquals(0f, timeline.getItemProgress(2), DELTA);
+        assertNull(host.finished);
+    }
+
+    @Test
+    public void itemTracksStartOneAfterAnother() {
+        timeline.jumpTo(false);
+        timeline.play(true);
+        frame(0);
+        frame(20);
+
+        assertEquals(.2f, timeline.getItemProgress(0), DELTA);
+        assertEquals(.2f, timeline.getItemProgress(1), DELTA);
+        assertEquals(0f, timeline.getItemProgress(2), DELTA);
+    }
+
+    @Test
+    public void expandOvershootsAndSettles() {
+        timeline.jumpTo(false);
+        timeline.play(true);
+        float max = 0;
+        for (int time = 0; timeline.isRunning(); time += 10) {
+            frame(time);
+            max = Math.max(max, host.progress);
+        }
+
+        assertTrue(max > 1f);
+        assertEquals(1f, host.progress, DELTA);
+        assertEquals(1f, timeline.getItemProgress(0), DELTA);
+        assertEquals(1f, timeline.getItemProgress(2), DELTA);
+        assertEquals(Boolean.TRUE, host.finished);
+    }
+
+    @Test
+    public void collapseEasesStraightDown() {
+        timeline.jumpTo(true);
+        timeline.play(false);
+        float previous = 1f;
+        for (int time = 0; timeline.isRunning(); time += 10) {
+            frame(time);
+            assertTrue(host.progress <= previous);
+            assertTrue(host.progress >= 0f);
+            previous = host.progress;
+        }
+
+        assertEquals(0f, host.progress, DELTA);
+        assertEquals(0f, timeline.getItemProgress(0), DELTA);
+        assertEquals(Boolean.FALSE, host.finished);
+    }
+
+    @Test
+    public void reversingTurnsAroundInPlace() {
+        timeline.jumpTo(false);
+        timeline.play(true);
+        frame(0);
+        frame(50);
+        float turn = host.progress;
+        timeline.play(false);
+        frame(60);
+
+        // every item is under way, none waits for its stagger again
+        assertEquals(.4f, timeline.getItemProgress(2), DELTA);
+        assertEquals(.4f, timeline.getItemProgress(0), DELTA);
+        assertTrue(host.progress < turn);
+        assertTrue(turn - host.progress < .15f);
+
+        float previous = host.progress;
+        for (int time = 70; timeline.isRunning(); time += 10) {
+            frame(time);
+            assertTrue(host.progress <= previous);
+            previous = host.progress;
+        }
+        assertEquals(0f, host.progress, DELTA);
+        assertEquals(Boolean.FALSE, host.finished);
+    }
+
+    @Test
+    public void onlyTracksAtTheirStartWaitAfterReversing() {
+        timeline.jumpTo(true);
+        timeline.play(false);
+        frame(0);
+        frame(15);
+        // the last item started collapsing, the others still wait
+        assertEquals(.85f, timeline.getItemProgress(2), DELTA);
+        assertEquals(1f, timeline.getItemProgress(1), DELTA);
+
+        timeline.play(true);
+        timeline.play(false);
+        frame(20);
+
+        assertEquals(.8f, timeline.getItemProgress(2), DELTA);
+        assertEquals(1f, timeline.getItemProgress(1), DELTA);
+        assertEquals(1f, timeline.getItemProgress(0), DELTA);
+    }
+
+    @Test
+    public void playingTheSameWayContinues() {
+        timeline.jumpTo(false);
+        timeline.play(true);
+        frame(0);
+        frame(50);
+        timeline.play(true);
+        frame(60);
+
+        assertEquals(.6f, timeline.getItemProgress(0), DELTA);
+    }
+
+    @Test
+    public void seekPlacesEveryTrack() {
+        timeline.jumpTo(true);
+        timeline.seekFraction(.5f);
+
+        // 65ms into an expand
+        assertEquals(MenuTimeline.overshoot(.65f), host.progress, DELTA);
+        assertEquals(.55f, timeline.getItemProgress(0), DELTA);
+        assertEquals(.45f, timeline.getItemProgress(1), DELTA);
+        assertEquals(.35f, timeline.getItemProgress(2), DELTA);
+
+        timeline.seekFraction(0f);
+        assertEquals(0f, host.progress, DELTA);
+        assertEquals(0f, timeline.getItemProgress(0), DELTA);
+
+        timeline.seekFraction(1f);
+        assertEquals(1f, host.progress, DELTA);
+        assertEquals(1f, timeline.getItemProgress(2), DELTA);
+    }
+
+    @Test
+    public void seekFollowsTheCollapseOrder() {
+        timeline.jumpTo(false);
+        timeline.seekFraction(.5f);
+
+        assertEquals(.45f, timeline.getItemProgress(2), DELTA);
+        assertEquals(.65f, timeline.getItemProgress(0), DELTA);
+        // 65ms into a collapse, without overshoot
+        assertEquals(MenuTimeline.accelerateDecelerate(.35f), host.progress, DELTA);
+    }
+
+    @Test
+    public void seekingARunningTimelineContinuesFromThere() {
+        timeline.jumpTo(false);
+        timeline.play(true);
+        frame(0);
+        frame(10);
+        timeline.seekFraction(.5f);
+        frame(20);
+
+        assertEquals(.65f, timeline.getItemProgress(0), DELTA);
+        assertEquals(.45f, timeline.getItemProgress(2), DELTA);
+    }
+
+    @Test
+    public void easingCurvesMatchTheFramework() {
+        assertEquals(0f, MenuTimeline.overshoot(0f), DELTA);
+        assertEquals(1.125f, MenuTimeline.overshoot(.5f), DELTA);
+        assertEquals(1f, MenuTimeline.overshoot(1f), DELTA);
+        assertEquals(0f, MenuTimeline.accelerateDecelerate(0f), DELTA);
+        assertEquals(.5f, MenuTimeline.accelerateDecelerate(.5f), DELTA);
+        assertEquals(1f, MenuTimeline.accelerateDecelerate(1f), DELTA);
+    }
+
+    @Test
+    public void blendMixesEachChannel() {
+        assertEquals(0xff7f7f7f, MenuTimeline.blendArgb(0xff000000, 0xffffffff, .5f));
+        assertEquals(0x00ff0000, MenuTimeline.blendArgb(0x00ff0000, 0xff00ff00, 0f));
+        assertEquals(0xff00ff00, MenuTimeline.blendArgb(0x00ff0000, 0xff00ff00, 1f));
+    }
+
+    private void frame(long millis) {
+        timeline.doFrame((BASE_MILLIS + millis) * 1000000L);
+    }
+
+    /**
+     * records what the timeline applies
+     */
+    private static class FakeHost implements MenuTimeline.Host {
+        final View[] views;
+        float progress;
+        Boolean finished;
+
+        FakeHost(int count) {
+            views = new View[count];
+            for (int i = 0; i < count; i++) {
+                views[i] = new View(null);
+            }
+        }
+
+        @Override
+        public int getItemCount() {
+            return views.length;
+        }
+
+        @Override
+        public View getItemView(int index) {
+            return views[index];
+        }
+
+        @Override
+        public void setExpandProgress(float progress) {
+            this.progress = progress;
+        }
+
+        @Override
+        public void setCoreColor(int color) {
+        }
+
+        @Override
+        public void onTimelineFinished(boolean expanded) {
+            finished = expanded;
+        }
+    }
+}
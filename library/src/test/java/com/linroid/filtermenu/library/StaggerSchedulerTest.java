@@ -0,0 +1,119 @@
+package com.linroid.filtermenu.library;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StaggerSchedulerTest {
+    private static final int COUNT = 4;
+
+    private StaggerScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new StaggerScheduler(100, 20);
+    }
+
+    @Test
+    public void linearDelaysAreOneStaggerApart() {
+        assertEquals(80, scheduler.getSpan(COUNT));
+        assertEquals(180, scheduler.getTotalDuration(COUNT));
+        for (int order = 0; order < COUNT; order++) {
+            assertEquals(20 * (order + 1), delay(order, order));
+        }
+    }
+
+    @Test
+    public void easeOutStartsMostItemsEarly() {
+        scheduler.setCurve(FilterMenuLayout.STAGGER_EASE_OUT);
+
+        long previousGap = 0;
+        long previous = 0;
+        for (int order = 0; order < COUNT; order++) {
+            long delay = delay(order, order);
+            assertTrue(delay <= 20 * (order + 1));
+            assertTrue(delay - previous > previousGap);
+            previousGap = delay - previous;
+            previous = delay;
+        }
+        assertEquals(80, previous);
+    }
+
+    @Test
+    public void budgetShrinksTheSpan() {
+        scheduler.setMaxDuration(150);
+
+        assertEquals(100, scheduler.getTrackDuration());
+        assertEquals(50, scheduler.getSpan(COUNT));
+        assertEquals(150, scheduler.getTotalDuration(COUNT));
+        assertEquals(50, delay(COUNT - 1, COUNT - 1));
+    }
+
+    @Test
+    public void budgetShorterThanAnItemShrinksTheTrack() {
+        scheduler.setMaxDuration(60);
+
+        assertEquals(60, scheduler.getTrackDuration());
+        assertEquals(0, scheduler.getSpan(COUNT));
+        assertEquals(60, scheduler.getTotalDuration(COUNT));
+        assertEquals(0, delay(COUNT - 1, COUNT - 1));
+    }
+
+    @Test
+    public void budgetLongerThanTheAnimationChangesNothing() {
+        scheduler.setMaxDuration(1000);
+
+        assertEquals(180, scheduler.getTotalDuration(COUNT));
+    }
+
+    @Test
+    public void radialStartsItemsClosestToTheTouchFirst() {
+        scheduler.setCurve(FilterMenuLayout.STAGGER_RADIAL);
+        // items at 45, 135, 225 and 315 degrees
+        scheduler.setArc(0, 360);
+        scheduler.setOrigin(45);
+
+        assertEquals(0, delay(0, 0));
+        assertEquals(40, delay(0, 1));
+        assertEquals(80, delay(0, 2));
+        assertEquals(40, delay(0, 3));
+    }
+
+    @Test
+    public void radialMeasuresAcrossZeroDegrees() {
+        scheduler.setCurve(FilterMenuLayout.STAGGER_RADIAL);
+        scheduler.setArc(0, 360);
+        scheduler.setOrigin(350);
+
+        assertEquals(15, delay(0, 3));
+        assertEquals(24, delay(0, 0));
+    }
+
+    @Test
+    public void radialWithoutTouchIsLinear() {
+        scheduler.setCurve(FilterMenuLayout.STAGGER_RADIAL);
+        scheduler.setArc(0, 360);
+        scheduler.setOrigin(Double.NaN);
+
+        for (int order = 0; order < COUNT; order++) {
+            assertEquals(20 * (order + 1), delay(order, COUNT - 1 - order));
+        }
+    }
+
+    @Test
+    public void settersClampToValidValues() {
+        scheduler.setItemDuration(0);
+        scheduler.setStagger(-5);
+        scheduler.setMaxDuration(-1);
+
+        assertEquals(1, scheduler.getItemDuration());
+        assertEquals(0, scheduler.getStagger());
+        assertEquals(0, scheduler.getMaxDuration());
+    }
+
+    private long delay(int order, int index) {
+        return scheduler.getDelay(order, index, COUNT);
+    }
+}
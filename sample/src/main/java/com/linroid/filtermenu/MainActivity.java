@@ -4,7 +4,9 @@ import android.content.Intent;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -12,8 +14,11 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.linroid.filtermenu.library.AnimationFrameStats;
 import com.linroid.filtermenu.library.FilterMenu;
 import com.linroid.filtermenu.library.FilterMenuLayout;
+import com.linroid.filtermenu.library.FilterMenuTracer;
+import com.linroid.filtermenu.library.IconLoader;
 
 import hugo.weaving.DebugLog;
 
@@ -23,6 +28,9 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        if (BuildConfig.DEBUG) {
+            FilterMenuLayout.setGlobalTracer(new FilterMenuTracer.Systrace());
+        }
         setContentView(R.layout.activity_main);
         FilterMenuLayout layout1 = findViewById(R.id.filter_menu1);
         attachMenu1(layout1);
@@ -35,43 +43,55 @@ public class MainActivity extends AppCompatActivity {
 
         FilterMenuLayout layout4 = findViewById(R.id.filter_menu4);
         attachMenu4(layout4);
+
+        if (BuildConfig.DEBUG) {
+            // menu3 animates on the RenderThread, compare its frames with the other menus
+            layout1.setOnFrameStatsListener(frameStatsListener);
+            layout2.setOnFrameStatsListener(frameStatsListener);
+            layout3.setOnFrameStatsListener(frameStatsListener);
+            layout4.setOnFrameStatsListener(frameStatsListener);
+        }
     }
-    private FilterMenu attachMenu1(FilterMenuLayout layout){
-        return new FilterMenu.Builder(this)
+    private void attachMenu1(FilterMenuLayout layout){
+        new FilterMenu.Builder(this)
                 .addItem(R.drawable.ic_action_add)
                 .addItem(R.drawable.ic_action_clock)
                 .addItem(R.drawable.ic_action_info)
                 .addItem(R.drawable.ic_action_io)
                 .addItem(R.drawable.ic_action_location_2)
+                .withIconLoader(IconLoader.getInstance(this))
                 .attach(layout)
                 .withListener(listener)
-                .build();
+                .buildAsync(AsyncTask.THREAD_POOL_EXECUTOR, null);
     }
-    private FilterMenu attachMenu2(FilterMenuLayout layout){
-        return new FilterMenu.Builder(this)
+    private void attachMenu2(FilterMenuLayout layout){
+        new FilterMenu.Builder(this)
                 .addItem(R.drawable.ic_action_add)
                 .addItem(R.drawable.ic_action_clock)
                 .addItem(R.drawable.ic_action_info)
                 .addItem(R.drawable.ic_action_location_2)
+                .withIconLoader(IconLoader.getInstance(this))
                 .attach(layout)
                 .withListener(listener)
-                .build();
+                .buildAsync(AsyncTask.THREAD_POOL_EXECUTOR, null);
     }
-    private FilterMenu attachMenu3(FilterMenuLayout layout){
-        return new FilterMenu.Builder(this)
+    private void attachMenu3(FilterMenuLayout layout){
+        new FilterMenu.Builder(this)
                 .addItem(R.drawable.ic_action_add)
                 .addItem(R.drawable.ic_action_clock)
                 .addItem(R.drawable.ic_action_location_2)
+                .withIconLoader(IconLoader.getInstance(this))
                 .attach(layout)
                 .withListener(listener)
-                .build();
+                .buildAsync(AsyncTask.THREAD_POOL_EXECUTOR, null);
     }
-    private FilterMenu attachMenu4(FilterMenuLayout layout){
-        return new FilterMenu.Builder(this)
+    private void attachMenu4(FilterMenuLayout layout){
+        new FilterMenu.Builder(this)
                 .inflate(R.menu.menu_filter)
+                .withLazyItems(true)
                 .attach(layout)
                 .withListener(listener)
-                .build();
+                .buildAsync(AsyncTask.THREAD_POOL_EXECUTOR, null);
     }
 
 
@@ -99,6 +119,12 @@ public class MainActivity extends AppCompatActivity {
 
         return super.onOptionsItemSelected(item);
     }
+    FilterMenuLayout.OnFrameStatsListener frameStatsListener = new FilterMenuLayout.OnFrameStatsListener() {
+        @Override
+        public void onFrameStats(AnimationFrameStats stats) {
+            Log.d("MainActivity", stats.toString());
+        }
+    };
     FilterMenu.OnMenuChangeListener listener = new FilterMenu.OnMenuChangeListener() {
         @DebugLog
         @Override